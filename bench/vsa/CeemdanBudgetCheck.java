@@ -0,0 +1,114 @@
+package vsa;
+
+import java.util.Random;
+
+/****************************************************************************
+ * Klasa CeemdanBudgetCheck
+ *
+ * Sprawdzenie wyniku częściowego algorytmu CEEMDAN (Analysis.DecompositionMode
+ * .CEEMDAN) po przekroczeniu limitu czasu analizy. Najpierw sygnał jest
+ * rozkładany bez limitu czasu, a potem analizowany z limitami równymi
+ * części czasu pełnej dekompozycji. Funkcja IMF wyniku częściowego jest
+ * średnią z realizacji szumu zakończonych przed limitem, więc jej energia
+ * (wartość skuteczna) musi być zbliżona do energii funkcji IMF pełnej
+ * dekompozycji o najbliższej częstotliwości. Uśrednianie po liczbie
+ * wszystkich realizacji zmniejszałoby ją w stosunku liczby realizacji
+ * zakończonych do wszystkich. Limity są rozłożone gęsto, żeby któryś z nich
+ * wypadł w trakcie etapu, w którym zakończyła się tylko część realizacji.
+ *
+ * Sygnałem jest nośna 150 Hz modulowana częstotliwościowo sinusoidą 10 Hz,
+ * ton 310 Hz, sinusoida 10.3 Hz i szum (stałe ziarno). Program kończy się
+ * kodem 1, jeżeli którykolwiek wynik częściowy nie spełnia warunku.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.CeemdanBudgetCheck
+ *
+ ****************************************************************************
+ */
+public class CeemdanBudgetCheck {
+
+	private static final int SECONDS = 3;
+	private static final int TRIALS = 16;
+	private static final float NOISE_AMPLITUDE = 0.2F;
+
+	/**
+	 * Części czasu pełnej dekompozycji użyte jako limity czasu
+	 */
+	private static final double[] BUDGET_FRACTIONS = { 0.05, 0.15, 0.25, 0.35, 0.45, 0.55, 0.65, 0.75 };
+
+	/**
+	 * Dopuszczalny stosunek wartości skutecznych funkcji IMF
+	 */
+	private static final double MAX_RMS_RATIO = 1.25;
+
+	public static void main(String[] args) throws Exception {
+		float[] signal = signal(SECONDS, 1);
+
+		// pełna dekompozycja, wszystkie funkcje IMF
+		Analysis reference = analysis(0);
+		float[] decimated = LowPassFilter.filetringDecimated(signal, reference.getDecimationFactor());
+		ImfSet full = new ImfSet(decimated.length, Analysis.ImfRetention.ALL);
+		long start = System.nanoTime();
+		new CompleteEnsembleEmd(reference, TRIALS, NOISE_AMPLITUDE, Analysis.NoiseType.WHITE,
+				EnsembleEmd.DEFAULT_SEED).decompose(decimated, full);
+		long fullMillis = (System.nanoTime() - start) / 1000000;
+		System.out.printf("full: %d IMFs in %d ms%n", full.size(), fullMillis);
+
+		boolean failed = false;
+		for (double fraction : BUDGET_FRACTIONS) {
+			long budget = Math.max(1, Math.round(fraction * fullMillis));
+			MicrotremorFunction partial;
+			try {
+				partial = analysis(budget).startAnalysis(signal.clone());
+			} catch (AnalysisInterruptedException e) {
+				System.out.printf("budget %d ms: no result%n", budget);
+				continue;
+			}
+
+			// funkcja pełnej dekompozycji o najbliższej częstotliwości
+			int closest = 0;
+			for (int k = 1; k < full.size(); k++)
+				if (Math.abs(full.getFrequency(k) - partial.freq) < Math.abs(full.getFrequency(closest) - partial.freq))
+					closest = k;
+			double ratio = rms(partial.samples) / rms(full.getSamples(closest));
+			boolean ok = ratio <= MAX_RMS_RATIO && ratio >= 1 / MAX_RMS_RATIO;
+			failed |= !ok;
+			System.out.printf("budget %d ms: %.2f Hz, partial %b, RMS %.4f vs %.4f (%.2f Hz), ratio %.3f %s%n", budget,
+					partial.freq, partial.isPartial(), rms(partial.samples), rms(full.getSamples(closest)),
+					full.getFrequency(closest), ratio, ok ? "OK" : "FAILED");
+		}
+		if (failed)
+			System.exit(1);
+	}
+
+	private static Analysis analysis(long budget) {
+		Analysis analysis = new Analysis();
+		analysis.setDecompositionMode(Analysis.DecompositionMode.CEEMDAN);
+		analysis.setEnsemble(TRIALS, NOISE_AMPLITUDE, Analysis.NoiseType.WHITE);
+		analysis.setImfRetention(Analysis.ImfRetention.ALL);
+		analysis.setTimeBudget(budget);
+		return analysis;
+	}
+
+	static float[] signal(int seconds, long seed) {
+		final float rate = 44100F;
+		float[] signal = new float[Math.round(seconds * rate)];
+		Random random = new Random(seed);
+		for (int i = 0; i < signal.length; i++) {
+			double t = i / rate;
+			signal[i] = (float) (0.3 * Math.sin(2 * Math.PI * 150 * t + 0.5 * Math.sin(2 * Math.PI * 10 * t)) + 0.2
+					* Math.sin(2 * Math.PI * 310 * t) + 0.1 * Math.sin(2 * Math.PI * 10.3 * t) + 0.05
+					* random.nextGaussian());
+		}
+		return signal;
+	}
+
+	static double rms(float[] samples) {
+		double sum = 0;
+		for (float sample : samples)
+			sum += sample * sample;
+		return Math.sqrt(sum / samples.length);
+	}
+}
@@ -0,0 +1,80 @@
+package vsa;
+
+import java.util.Arrays;
+
+/****************************************************************************
+ * Klasa CoarseToFineCheck
+ *
+ * Sprawdzenie dekompozycji zgrubno-dokładnej (CoarseToFineEmd) względem
+ * zwykłego algorytmu EMD. Dla każdego sygnału obie dekompozycje są
+ * wykonywane na tym samym sygnale po filtracji i decymacji, a program
+ * sprawdza, że:
+ *
+ * - funkcje IMF wyznaczone w przebiegu dokładnym są identyczne (bit w bit)
+ * z pierwszymi funkcjami zwykłego algorytmu EMD,
+ *
+ * - żadna z pominiętych funkcji nie jest bliższa częstotliwości
+ * mikrodrżenia niż funkcja wybrana, czyli granica częstotliwości przebiegu
+ * dokładnego nie odcina funkcji, którą wybrałby zwykły algorytm EMD,
+ *
+ * - wybrana częstotliwość jest taka sama w obu dekompozycjach.
+ *
+ * Sygnały są takie jak w CeemdanBudgetCheck, o długości 5 i 30 s, dla
+ * trzech ziaren szumu. Wypisywane są też czasy obu dekompozycji. Program
+ * kończy się kodem 1, jeżeli którykolwiek warunek nie jest spełniony.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.CoarseToFineCheck
+ *
+ ****************************************************************************
+ */
+public class CoarseToFineCheck {
+
+	private static final int[] SECONDS = { 5, 30 };
+	private static final long[] SEEDS = { 1, 2, 3 };
+
+	public static void main(String[] args) throws Exception {
+		Analysis analysis = new Analysis();
+		EmdWorkspace workspace = new EmdWorkspace();
+		boolean failed = false;
+		for (int seconds : SECONDS)
+			for (long seed : SEEDS) {
+				float[] decimated = LowPassFilter.filetringDecimated(CeemdanBudgetCheck.signal(seconds, seed),
+						analysis.getDecimationFactor());
+
+				ImfSet full = new ImfSet(decimated.length, Analysis.ImfRetention.ALL);
+				long start = System.nanoTime();
+				analysis.emd(decimated.clone(), full, workspace);
+				long fullMillis = (System.nanoTime() - start) / 1000000;
+
+				ImfSet refined = new ImfSet(decimated.length, Analysis.ImfRetention.ALL);
+				start = System.nanoTime();
+				new CoarseToFineEmd(analysis).decompose(decimated.clone(), refined, workspace);
+				long refinedMillis = (System.nanoTime() - start) / 1000000;
+
+				boolean identical = refined.size() <= full.size();
+				for (int k = 0; identical && k < refined.size(); k++)
+					identical = Arrays.equals(refined.getSamples(k), full.getSamples(k));
+
+				// pominięte funkcje nie mogą być bliższe mikrodrżeniu
+				float selected = refined.getFrequency(refined.findClosest());
+				boolean bounded = true;
+				for (int k = refined.size(); k < full.size(); k++)
+					if (Math.abs(full.getFrequency(k) - Analysis.MICROTREMOR_FREQUENCY) < Math.abs(selected
+							- Analysis.MICROTREMOR_FREQUENCY))
+						bounded = false;
+				boolean same = selected == full.getFrequency(full.findClosest());
+
+				boolean ok = identical && bounded && same;
+				failed |= !ok;
+				System.out.printf("%d s, seed %d: %d of %d IMFs, %.2f Hz vs %.2f Hz, %d ms vs %d ms%s%s%s %s%n",
+						seconds, seed, refined.size(), full.size(), selected, full.getFrequency(full.findClosest()),
+						refinedMillis, fullMillis, identical ? "" : ", IMFs differ", bounded ? ""
+								: ", closer IMF skipped", same ? "" : ", frequency differs", ok ? "OK" : "FAILED");
+			}
+		if (failed)
+			System.exit(1);
+	}
+}
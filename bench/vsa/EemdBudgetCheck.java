@@ -0,0 +1,100 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa EemdBudgetCheck
+ *
+ * Sprawdzenie wyniku częściowego algorytmu EEMD (Analysis.DecompositionMode
+ * .EEMD) po przekroczeniu limitu czasu analizy. Sygnał jest najpierw
+ * rozkładany bez limitu czasu, a potem analizowany z limitami równymi
+ * części czasu pełnej dekompozycji. Funkcja IMF wyniku częściowego jest
+ * średnią z prób zakończonych przed limitem, więc jej wartość skuteczna
+ * musi być zbliżona do wartości skutecznej funkcji IMF pełnej dekompozycji
+ * o najbliższej częstotliwości. Dzielenie sumy przez liczbę wszystkich prób
+ * zmniejszałoby ją w stosunku liczby prób zakończonych do wszystkich.
+ *
+ * Najkrótsze limity mijają, zanim zakończy się pierwsza próba. Wynik jest
+ * wtedy średnią z prób przerwanych w trakcie przesiewania, czyli funkcją
+ * przesianą tylko częściowo, więc jej wartość skuteczna może być większa
+ * niż w pełnej dekompozycji. Dla tych limitów sprawdzane jest tylko, że
+ * wynik nie jest pomniejszony przez próby, które nic nie wniosły.
+ *
+ * Sygnał jest taki sam jak w CeemdanBudgetCheck. Program kończy się kodem
+ * 1, jeżeli którykolwiek warunek nie jest spełniony.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.EemdBudgetCheck
+ *
+ ****************************************************************************
+ */
+public class EemdBudgetCheck {
+
+	private static final int SECONDS = 5;
+	private static final int TRIALS = 32;
+	private static final float NOISE_AMPLITUDE = 0.2F;
+
+	/**
+	 * Części czasu pełnej dekompozycji użyte jako limity czasu
+	 */
+	private static final double[] BUDGET_FRACTIONS = { 0.01, 0.02, 0.05, 0.25, 0.5, 0.75 };
+
+	/**
+	 * Najmniejsza część czasu, po której są już zakończone próby
+	 */
+	private static final double COMPLETED_FRACTION = 0.25;
+
+	/**
+	 * Dopuszczalny stosunek wartości skutecznych funkcji IMF
+	 */
+	private static final double MAX_RMS_RATIO = 1.25;
+
+	public static void main(String[] args) throws Exception {
+		float[] signal = CeemdanBudgetCheck.signal(SECONDS, 1);
+
+		// pełna dekompozycja, wszystkie funkcje IMF
+		Analysis reference = analysis(0);
+		float[] decimated = LowPassFilter.filetringDecimated(signal, reference.getDecimationFactor());
+		ImfSet full = new ImfSet(decimated.length, Analysis.ImfRetention.ALL);
+		long start = System.nanoTime();
+		new EnsembleEmd(reference, TRIALS, NOISE_AMPLITUDE, Analysis.NoiseType.WHITE, EnsembleEmd.DEFAULT_SEED)
+				.decompose(decimated, full);
+		long fullMillis = (System.nanoTime() - start) / 1000000;
+		System.out.printf("full: %d IMFs in %d ms%n", full.size(), fullMillis);
+
+		boolean failed = false;
+		for (double fraction : BUDGET_FRACTIONS) {
+			long budget = Math.max(1, Math.round(fraction * fullMillis));
+			MicrotremorFunction partial;
+			try {
+				partial = analysis(budget).startAnalysis(signal.clone());
+			} catch (AnalysisInterruptedException e) {
+				System.out.printf("budget %d ms: no result%n", budget);
+				continue;
+			}
+
+			// funkcja pełnej dekompozycji o najbliższej częstotliwości
+			int closest = 0;
+			for (int k = 1; k < full.size(); k++)
+				if (Math.abs(full.getFrequency(k) - partial.freq) < Math.abs(full.getFrequency(closest) - partial.freq))
+					closest = k;
+			double ratio = CeemdanBudgetCheck.rms(partial.samples) / CeemdanBudgetCheck.rms(full.getSamples(closest));
+			boolean ok = ratio >= 1 / MAX_RMS_RATIO && (ratio <= MAX_RMS_RATIO || fraction < COMPLETED_FRACTION);
+			failed |= !ok;
+			System.out.printf("budget %d ms: %.2f Hz, partial %b, RMS ratio to %.2f Hz IMF %.3f %s%n", budget,
+					partial.freq, partial.isPartial(), full.getFrequency(closest), ratio, ok ? "OK" : "FAILED");
+		}
+
+		if (failed)
+			System.exit(1);
+	}
+
+	private static Analysis analysis(long budget) {
+		Analysis analysis = new Analysis();
+		analysis.setDecompositionMode(Analysis.DecompositionMode.EEMD);
+		analysis.setEnsemble(TRIALS, NOISE_AMPLITUDE, Analysis.NoiseType.WHITE);
+		analysis.setImfRetention(Analysis.ImfRetention.ALL);
+		analysis.setTimeBudget(budget);
+		return analysis;
+	}
+}
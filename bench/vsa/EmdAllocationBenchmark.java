@@ -0,0 +1,93 @@
+package vsa;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/****************************************************************************
+ * Klasa EmdAllocationBenchmark
+ *
+ * Pomiar pamięci alokowanej przez algorytm EMD (Analysis.emd()) w stanie
+ * ustalonym. Liczone są wszystkie alokacje wątku (ThreadMXBean
+ * getThreadAllocatedBytes()), a nie tylko bufory EmdWorkspace, więc wynik
+ * obejmuje również tablice tworzone poza obszarem roboczym.
+ *
+ * Sygnałem jest suma sinusoid 3, 10 i 30 Hz z szumem o długości podanej w
+ * sekundach, próbkowana z częstotliwością analizy. Po rozgrzaniu JIT każda
+ * dekompozycja jest mierzona dwukrotnie: z nowym zbiorem ImfSet (tak jak w
+ * analizie) i z tym samym zbiorem wyczyszczonym przed dekompozycją, co
+ * pokazuje alokacje samego przesiewania.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.EmdAllocationBenchmark [sekundy]
+ *
+ ****************************************************************************
+ */
+public class EmdAllocationBenchmark {
+
+	private static final int WARMUP = 20;
+	private static final int RUNS = 20;
+
+	public static void main(String[] args) throws Exception {
+		float seconds = (args.length > 0) ? Float.parseFloat(args[0]) : 10F;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported())
+			throw new IllegalStateException("Thread allocation measurement not supported");
+		threads.setThreadAllocatedMemoryEnabled(true);
+		final long thread = Thread.currentThread().getId();
+
+		Analysis analysis = new Analysis();
+		float rate = analysis.getAnalysisSampleRate();
+		float[] signal = new float[Math.round(seconds * rate)];
+		Random random = new Random(1);
+		for (int i = 0; i < signal.length; i++) {
+			double t = i / rate;
+			signal[i] = (float) (0.5 * Math.sin(2 * Math.PI * 3 * t) + 0.3 * Math.sin(2 * Math.PI * 10 * t) + 0.2
+					* Math.sin(2 * Math.PI * 30 * t) + 0.05 * random.nextGaussian());
+		}
+
+		EmdWorkspace workspace = new EmdWorkspace();
+		ImfSet reused = new ImfSet(signal.length, Analysis.ImfRetention.ALL);
+		float[] residuum = new float[signal.length];
+
+		for (int run = 0; run < WARMUP; run++) {
+			System.arraycopy(signal, 0, residuum, 0, signal.length);
+			reused.clear();
+			analysis.emd(residuum, reused, workspace);
+		}
+
+		long freshBytes = 0, reusedBytes = 0, nanos = 0;
+		int sifts = 0, imfCount = 0;
+		for (int run = 0; run < RUNS; run++) {
+			System.arraycopy(signal, 0, residuum, 0, signal.length);
+			long before = threads.getThreadAllocatedBytes(thread);
+			ImfSet imfs = new ImfSet(signal.length, Analysis.ImfRetention.ALL);
+			analysis.emd(residuum, imfs, workspace);
+			freshBytes += threads.getThreadAllocatedBytes(thread) - before;
+
+			System.arraycopy(signal, 0, residuum, 0, signal.length);
+			reused.clear();
+			before = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			analysis.emd(residuum, reused, workspace);
+			nanos += System.nanoTime() - start;
+			reusedBytes += threads.getThreadAllocatedBytes(thread) - before;
+
+			imfCount = reused.size();
+			for (int k = 0; k < reused.size(); k++)
+				sifts += reused.getSiftCount(k);
+		}
+
+		long signalBytes = 4L * signal.length;
+		System.out.printf("signal %d samples (%.1f s at %.2f Hz), %d IMFs, %d sifts per decomposition%n",
+				signal.length, seconds, rate, imfCount, sifts / RUNS);
+		System.out.printf("emd() time: %.2f ms%n", nanos / 1e6 / RUNS);
+		System.out.printf("allocated, new ImfSet:    %d bytes per decomposition (%.2f x signal)%n", freshBytes / RUNS,
+				freshBytes / (double) RUNS / signalBytes);
+		System.out.printf("allocated, reused ImfSet: %d bytes per decomposition, %d bytes per sift%n", reusedBytes
+				/ RUNS, reusedBytes / Math.max(1, sifts));
+	}
+}
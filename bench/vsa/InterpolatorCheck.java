@@ -0,0 +1,195 @@
+package vsa;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.analysis.interpolation.SplineInterpolator;
+import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
+
+/****************************************************************************
+ * Klasa InterpolatorCheck
+ *
+ * Sprawdzenie interpolacji obwiedni (EnvelopeInterpolator) na węzłach o
+ * nieregularnych odstępach:
+ *
+ * - wszystkie rodzaje odtwarzają dokładnie dane liniowe,
+ *
+ * - CubicSpline zgadza się z naturalnymi funkcjami sklejanymi commons-math
+ * (SplineInterpolator),
+ *
+ * - PCHIP zachowuje monotoniczność i nie przestrzeliwuje między węzłami, a
+ * pochodne na krańcach są dokładne dla danych kwadratowych (wzór
+ * trzypunktowy) i ograniczone do zera albo 3 * nachylenie skrajnego
+ * przedziału, gdy wzór trzypunktowy zmieniłby kształt,
+ *
+ * - Akima zależy lokalnie od węzłów - zmiana jednego węzła nie zmienia
+ * wyniku dalej niż trzy przedziały od niego - a pochodne na krańcach są
+ * symetryczne względem odwrócenia danych.
+ *
+ * Na końcu dla każdego rodzaju obwiedni jest wypisywana częstotliwość
+ * mikrodrżenia i liczba iteracji przesiewania dla sygnałów 10 s z
+ * CeemdanBudgetCheck (ziarna 1-3). Ta część niczego nie sprawdza, tylko
+ * odtwarza porównanie rodzajów obwiedni. Program kończy się kodem 1, jeżeli
+ * którykolwiek warunek nie jest spełniony.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.InterpolatorCheck
+ *
+ ****************************************************************************
+ */
+public class InterpolatorCheck {
+
+	private static final int LENGTH = 2000;
+
+	/**
+	 * Dopuszczalny błąd względny obliczeń na liczbach float
+	 */
+	private static final float TOLERANCE = 1e-4F;
+
+	private static boolean failed = false;
+
+	public static void main(String[] args) throws Exception {
+		int[] knots = knots(LENGTH, 1);
+		int n = knots.length - 1;
+		float[] out = new float[LENGTH];
+
+		// dane liniowe
+		float[] linear = new float[LENGTH];
+		for (int i = 0; i < LENGTH; i++)
+			linear[i] = 0.5F + 0.01F * i;
+		PiecewiseCubicInterpolator[] interpolators = { new CubicSpline(), new PchipInterpolator(),
+				new AkimaInterpolator(), new LinearInterpolator() };
+		for (PiecewiseCubicInterpolator interpolator : interpolators) {
+			interpolator.interpolate(knots, knots.length, linear, out, LENGTH);
+			check(interpolator.getClass().getSimpleName() + " linear data", maxError(out, linear, 0, LENGTH),
+					TOLERANCE * linear[LENGTH - 1]);
+		}
+
+		// funkcje sklejane commons-math
+		float[] noisy = new float[LENGTH];
+		Random random = new Random(2);
+		for (int i = 0; i < LENGTH; i++)
+			noisy[i] = (float) (Math.sin(i * 0.07) + 0.1 * random.nextGaussian());
+		double[] x = new double[knots.length];
+		double[] y = new double[knots.length];
+		for (int k = 0; k < knots.length; k++) {
+			x[k] = knots[k];
+			y[k] = noisy[knots[k]];
+		}
+		PolynomialSplineFunction spline = new SplineInterpolator().interpolate(x, y);
+		float[] expected = new float[LENGTH];
+		for (int i = knots[0]; i <= knots[n]; i++)
+			expected[i] = (float) spline.value(i);
+		new CubicSpline().interpolate(knots, knots.length, noisy, out, LENGTH);
+		check("CubicSpline vs commons-math", maxError(out, expected, knots[0], knots[n] + 1), TOLERANCE * 10);
+
+		// PCHIP - monotoniczność
+		float[] steps = new float[LENGTH];
+		for (int k = 1; k < knots.length; k++) {
+			float step = (k % 5 == 0) ? 0 : random.nextFloat();
+			for (int i = knots[k - 1] + 1; i <= knots[k]; i++)
+				steps[i] = steps[knots[k - 1]] + step;
+		}
+		PchipInterpolator pchip = new PchipInterpolator();
+		pchip.interpolate(knots, knots.length, steps, out, LENGTH);
+		float worst = 0;
+		for (int k = 0; k < n; k++)
+			for (int i = knots[k]; i < knots[k + 1]; i++) {
+				worst = Math.max(worst, Math.max(steps[knots[k]] - out[i], out[i] - steps[knots[k + 1]]));
+				worst = Math.max(worst, out[i] - out[i + 1]);
+			}
+		check("PchipInterpolator overshoot on monotone data", worst, TOLERANCE);
+
+		// PCHIP - pochodne na krańcach dla danych kwadratowych
+		float[] quadratic = new float[LENGTH];
+		for (int i = 0; i < LENGTH; i++)
+			quadratic[i] = (i + 50F) * (i + 50F) / 1000F;
+		pchip.interpolate(knots, knots.length, quadratic, out, LENGTH);
+		float first = 2F * (knots[0] + 50F) / 1000F;
+		float last = 2F * (knots[n] + 50F) / 1000F;
+		check("PchipInterpolator end slopes, quadratic data",
+				Math.max(Math.abs(pchip.b[0] - first) / first, Math.abs(pchip.b[n] - last) / last), TOLERANCE * 10);
+
+		// PCHIP - ograniczenie pochodnej na krańcu: wzór trzypunktowy daje
+		// 6.5 (więcej niż 3 * 1) i -1 (przeciwny znak niż nachylenie 1)
+		pchip.interpolate(new int[] { 0, 1, 2 }, 3, new float[] { 0, 1, -9 }, out, 3);
+		check("PchipInterpolator end slope limited to 3 * delta", Math.abs(pchip.b[0] - 3F), 0);
+		pchip.interpolate(new int[] { 0, 1, 2 }, 3, new float[] { 0, 1, 6 }, out, 3);
+		check("PchipInterpolator end slope of opposite sign set to 0", Math.abs(pchip.b[0]), 0);
+
+		// Akima - lokalność
+		AkimaInterpolator akima = new AkimaInterpolator();
+		float[] reference = new float[LENGTH];
+		akima.interpolate(knots, knots.length, noisy, reference, LENGTH);
+		int k = n / 2;
+		float[] changed = noisy.clone();
+		changed[knots[k]] += 1F;
+		akima.interpolate(knots, knots.length, changed, out, LENGTH);
+		boolean local = Arrays.equals(Arrays.copyOfRange(out, 0, knots[k - 3]),
+				Arrays.copyOfRange(reference, 0, knots[k - 3]))
+				&& Arrays.equals(Arrays.copyOfRange(out, knots[k + 3], LENGTH),
+						Arrays.copyOfRange(reference, knots[k + 3], LENGTH));
+		check("AkimaInterpolator locality", local ? 0 : 1, 0);
+
+		// Akima - pochodne na krańcach po odwróceniu danych
+		int[] mirroredKnots = new int[knots.length];
+		for (int j = 0; j < knots.length; j++)
+			mirroredKnots[j] = knots[n] - knots[n - j];
+		float[] mirrored = new float[knots[n] + 1];
+		for (int i = 0; i <= knots[n]; i++)
+			mirrored[i] = noisy[knots[n] - i];
+		akima.interpolate(knots, knots.length, noisy, out, LENGTH);
+		float start = akima.b[0];
+		float end = akima.b[n];
+		akima.interpolate(mirroredKnots, knots.length, mirrored, out, mirrored.length);
+		check("AkimaInterpolator end slopes, mirrored data",
+				Math.max(Math.abs(start + akima.b[n]), Math.abs(end + akima.b[0])), TOLERANCE);
+
+		// wpływ rodzaju obwiedni na wynik analizy
+		for (Analysis.EnvelopeType type : Analysis.EnvelopeType.values()) {
+			StringBuilder line = new StringBuilder(String.format("%-6s", type));
+			for (long seed = 1; seed <= 3; seed++) {
+				Analysis analysis = new Analysis();
+				analysis.setEnvelopeType(type);
+				long begin = System.nanoTime();
+				MicrotremorFunction function = analysis.startAnalysis(CeemdanBudgetCheck.signal(10, seed));
+				long millis = (System.nanoTime() - begin) / 1000000;
+				int sifts = 0;
+				for (int count : analysis.getSiftCounts())
+					sifts += count;
+				line.append(String.format("  %6.2f Hz %6d sifts %5d ms", function.freq, sifts, millis));
+			}
+			System.out.println(line);
+		}
+
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Nieregularne węzły od 0 do length - 1, w odstępach od 3 do 15 próbek.
+	 */
+	static int[] knots(int length, long seed) {
+		Random random = new Random(seed);
+		IntList knots = new IntList();
+		for (int i = 0; i < length - 1; i += 3 + random.nextInt(13))
+			knots.add(i);
+		knots.add(length - 1);
+		return Arrays.copyOf(knots.array(), knots.size());
+	}
+
+	private static float maxError(float[] actual, float[] expected, int from, int to) {
+		float max = 0;
+		for (int i = from; i < to; i++)
+			max = Math.max(max, Math.abs(actual[i] - expected[i]));
+		return max;
+	}
+
+	private static void check(String name, float error, float tolerance) {
+		boolean ok = error <= tolerance;
+		failed |= !ok;
+		System.out.printf("%s: error %.3g, tolerance %.3g %s%n", name, error, tolerance, ok ? "OK" : "FAILED");
+	}
+}
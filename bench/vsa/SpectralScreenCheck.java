@@ -0,0 +1,155 @@
+package vsa;
+
+import java.util.Random;
+
+/****************************************************************************
+ * Klasa SpectralScreenCheck
+ *
+ * Sprawdzenie szybkiej oceny widmowej (SpectralScreen). Najpierw progi oceny
+ * są sprawdzane na sygnałach podanych bezpośrednio w częstotliwości
+ * próbkowania analizy:
+ *
+ * - pojedyncze mikrodrżenie 10 Hz jest rozstrzygane, z częstotliwością
+ * dokładną do 0.1 Hz,
+ *
+ * - mikrodrżenie bliżej granicy pasma stresu niż BOUNDARY_MARGIN, poza
+ * pasmem stresu, sam szum, dwa maksima o mocach różniących się mniej niż
+ * COMPARABLE_PEAK_RATIO razy i sygnał krótszy niż ramka wymagają analizy
+ * EMD,
+ *
+ * - słabsze drugie maksimum (moc 9 razy mniejsza) nie blokuje oceny.
+ *
+ * Potem ocena jest porównywana z pełną analizą EMD na 20-sekundowych
+ * nagraniach z trzech rodzin: głos z modulacją częstotliwości i tonem 310
+ * Hz, bez tonu 310 Hz oraz z drugim tonem 14 Hz. Każda rodzina ma 15
+ * częstotliwości mikrodrżenia od 5 do 15 Hz i trzy ziarna szumu. Dla nagrań
+ * rozstrzygniętych przez ocenę decyzja musi zgadzać się z decyzją analizy
+ * EMD w co najmniej MIN_AGREEMENT przypadków. Wypisywany jest też czas
+ * oceny na sekundę nagrania.
+ *
+ * Program kończy się kodem 1, jeżeli którykolwiek warunek nie jest
+ * spełniony.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.SpectralScreenCheck
+ *
+ ****************************************************************************
+ */
+public class SpectralScreenCheck {
+
+	private static final int SECONDS = 20;
+
+	/**
+	 * Liczba powtórzeń przy rozgrzewaniu JIT i pomiarze czasu oceny
+	 */
+	private static final int RUNS = 200;
+
+	private static final double[] TREMOR_FREQUENCIES = { 5, 6.5, 7.6, 8.5, 9, 9.5, 9.8, 10, 10.3, 10.7, 11, 11.4,
+			12.4, 13.5, 15 };
+
+	/**
+	 * Najmniejszy udział nagrań rozstrzygniętych przez ocenę, dla których
+	 * decyzja zgadza się z analizą EMD
+	 */
+	private static final double MIN_AGREEMENT = 0.9;
+
+	private static boolean failed = false;
+
+	public static void main(String[] args) throws Exception {
+		float rate = new Analysis().getAnalysisSampleRate();
+
+		// progi oceny
+		expect("10 Hz tremor", tones(rate, SECONDS, 10, 1, 0, 0), false, 10F);
+		expect("8.5 Hz tremor, within the boundary margin", tones(rate, SECONDS, 8.5, 1, 0, 0), true, 0);
+		expect("7 Hz tremor, outside the stress band", tones(rate, SECONDS, 7, 1, 0, 0), true, 0);
+		expect("noise only", tones(rate, SECONDS, 10, 0, 0, 0), true, 0);
+		expect("10 and 13 Hz, equal power", tones(rate, SECONDS, 10, 1, 13, 1), true, 0);
+		expect("10 and 13 Hz, 9x less power at 13 Hz", tones(rate, SECONDS, 10, 1, 13, 1 / 3.0), false, 10F);
+		expect("signal shorter than a frame", tones(rate, (int) SpectralScreen.FRAME_SECONDS - 1, 10, 1, 0, 0),
+				true, 0);
+
+		// czas oceny
+		float[] minute = tones(rate, 60, 10, 1, 0, 0);
+		for (int run = 0; run < RUNS; run++)
+			new SpectralScreen(minute, rate);
+		long start = System.nanoTime();
+		for (int run = 0; run < RUNS; run++)
+			new SpectralScreen(minute, rate);
+		System.out.printf("screen time: %.1f us per second of audio%n", (System.nanoTime() - start) / 1e3 / RUNS / 60);
+
+		// zgodność z analizą EMD
+		int screened = 0, agreeing = 0, total = 0;
+		for (int family = 0; family < 3; family++)
+			for (double tremor : TREMOR_FREQUENCIES)
+				for (long seed = 1; seed <= 3; seed++) {
+					float[] signal = recording(SECONDS, seed, tremor, family);
+					Analysis screening = new Analysis();
+					screening.setSpectralScreening(true);
+					MicrotremorFunction screenResult = screening.startAnalysis(signal.clone());
+					total++;
+					if (screening.getSpectralScreen().isAmbiguous())
+						continue;
+					screened++;
+					MicrotremorFunction emdResult = new Analysis().startAnalysis(signal.clone());
+					boolean agree = screenResult.getDecision() == emdResult.getDecision();
+					if (agree)
+						agreeing++;
+					System.out.printf("family %d, %.1f Hz, seed %d: screen %.2f Hz, EMD %.2f Hz%s%n", family, tremor,
+							seed, screenResult.freq, emdResult.freq, agree ? "" : ", decisions differ");
+				}
+		boolean ok = screened > 0 && agreeing >= MIN_AGREEMENT * screened;
+		failed |= !ok;
+		System.out.printf("screened %d of %d, EMD agrees on %d %s%n", screened, total, agreeing, ok ? "OK" : "FAILED");
+
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Sprawdzenie wyniku oceny jednego sygnału.
+	 */
+	private static void expect(String name, float[] signal, boolean ambiguous, float frequency) {
+		SpectralScreen screen = new SpectralScreen(signal, new Analysis().getAnalysisSampleRate());
+		boolean ok = screen.isAmbiguous() == ambiguous
+				&& (ambiguous || Math.abs(screen.getDominantFrequency() - frequency) < 0.1F);
+		failed |= !ok;
+		System.out.printf("%s: %s %s%n", name, screen, ok ? "OK" : "FAILED");
+	}
+
+	/**
+	 * Jeden albo dwa tony z szumem, w częstotliwości próbkowania analizy.
+	 */
+	private static float[] tones(float rate, int seconds, double f1, double a1, double f2, double a2) {
+		float[] signal = new float[Math.round(seconds * rate)];
+		Random random = new Random(1);
+		for (int i = 0; i < signal.length; i++) {
+			double t = i / rate;
+			signal[i] = (float) (a1 * Math.sin(2 * Math.PI * f1 * t) + a2 * Math.sin(2 * Math.PI * f2 * t) + 0.5
+					* random.nextGaussian());
+		}
+		return signal;
+	}
+
+	/**
+	 * Nagranie o częstotliwości próbkowania 44100 Hz: 0 - głos z modulacją
+	 * częstotliwości mikrodrżeniem i tonem 310 Hz, 1 - bez tonu 310 Hz, 2 -
+	 * z drugim tonem 14 Hz.
+	 */
+	private static float[] recording(int seconds, long seed, double tremor, int family) {
+		float[] signal = new float[44100 * seconds];
+		Random random = new Random(seed);
+		for (int i = 0; i < signal.length; i++) {
+			double t = i / 44100.0;
+			double value = 0.3 * Math.sin(2 * Math.PI * 150 * t + 0.5 * Math.sin(2 * Math.PI * tremor * t)) + 0.1
+					* Math.sin(2 * Math.PI * tremor * t) + 0.05 * random.nextGaussian();
+			if (family == 0)
+				value += 0.2 * Math.sin(2 * Math.PI * 310 * t);
+			if (family == 2)
+				value += 0.08 * Math.sin(2 * Math.PI * 14 * t + seed);
+			signal[i] = (float) value;
+		}
+		return signal;
+	}
+}
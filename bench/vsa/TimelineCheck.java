@@ -0,0 +1,155 @@
+package vsa;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/****************************************************************************
+ * Klasa TimelineCheck
+ *
+ * Sprawdzenie analizy stresu w czasie (Analysis.analyseTimeline()).
+ * Najpierw dla kilku długości nagrania, długości okna i zakładki jest
+ * sprawdzany podział na okna (z dokładnością do jednej próbki po
+ * decymacji). Okna obejmują cały sygnał po filtracji, łącznie z końcówką
+ * odpowiedzi filtru, więc długość nagrania jest liczona z sygnału po
+ * filtracji i decymacji (domyślny tryb filtracji):
+ *
+ * - pierwsze okno zaczyna się na początku nagrania, a kolejne co krok
+ * równy długości okna pomnożonej przez (1 - zakładka),
+ *
+ * - ostatnie okno kończy się nie dalej niż nagranie, a następne już by się
+ * nie zmieściło,
+ *
+ * - nagranie krótsze niż okno daje jedno okno o długości nagrania,
+ *
+ * - zakładka spoza przedziału [0, 1) jest odrzucana.
+ *
+ * Potem wynik i czas są porównywane z osobną analizą startAnalysis()
+ * każdego okna (2 s, zakładka 50%) na nagraniach 10, 20 i 60 s, w których
+ * mikrodrżenie 10 Hz zmienia się w połowie na 6 Hz. Okno jest ocenione
+ * poprawnie, jeżeli w pierwszej połowie nie stwierdzono stresu, a w drugiej
+ * stwierdzono. Czasy są mierzone po rozgrzaniu JIT. Analiza w czasie nie
+ * może mieć mniej poprawnie ocenionych okien niż analiza osobnych okien.
+ * Program kończy się kodem 1, jeżeli którykolwiek warunek nie jest
+ * spełniony.
+ *
+ * Uruchomienie (z katalogu projektu):
+ *
+ * javac -cp lib/commons-math3-3.5.jar -d bin $(find src bench -name "*.java")
+ * java -cp bin:lib/commons-math3-3.5.jar vsa.TimelineCheck
+ *
+ ****************************************************************************
+ */
+public class TimelineCheck {
+
+	private static final float[] DURATIONS = { 1F, 7.3F, 20F };
+	private static final float[][] WINDOWS = { { 2F, 0.5F }, { 1.5F, 0.25F }, { 3F, 0F }, { 0.7F, 0.9F } };
+	private static final int[] COMPARED_SECONDS = { 10, 20, 60 };
+	private static final int RUNS = 3;
+
+	private static boolean failed = false;
+
+	public static void main(String[] args) throws Exception {
+		Analysis analysis = new Analysis();
+		float rate = analysis.getAnalysisSampleRate();
+		float sample = 1 / rate;
+
+		// podział na okna
+		for (float seconds : DURATIONS) {
+			float[] signal = recording(seconds);
+			float duration = LowPassFilter.filetringDecimated(signal, analysis.getDecimationFactor()).length / rate;
+			for (float[] window : WINDOWS) {
+				StressTimeline timeline = analysis.analyseTimeline(signal.clone(), window[0], window[1]);
+				float length = Math.min(duration, window[0]);
+				float hop = Math.max(sample, length * (1 - window[1]));
+				boolean ok = Math.abs(timeline.getWindowSeconds() - length) <= sample
+						&& Math.abs(timeline.getHopSeconds() - hop) <= sample && timeline.getStart(0) == 0;
+				for (int w = 1; w < timeline.size(); w++)
+					ok &= Math.abs(timeline.getStart(w) - timeline.getStart(w - 1) - timeline.getHopSeconds()) <= sample;
+				float end = timeline.getStart(timeline.size() - 1) + timeline.getWindowSeconds();
+				ok &= end <= duration + sample && end + timeline.getHopSeconds() > duration - sample;
+				failed |= !ok;
+				System.out.printf("%.3f s, window %.1f s, overlap %.2f: %d windows of %.3f s every %.3f s, last "
+						+ "ends at %.3f s %s%n", duration, window[0], window[1], timeline.size(),
+						timeline.getWindowSeconds(), timeline.getHopSeconds(), end, ok ? "OK" : "FAILED");
+			}
+		}
+		try {
+			analysis.analyseTimeline(recording(5F), 2F, 1F);
+			failed = true;
+			System.out.println("overlap 1 accepted FAILED");
+		} catch (IllegalArgumentException e) {
+			System.out.println("overlap 1 rejected OK");
+		}
+
+		// porównanie z osobną analizą okien
+		for (int seconds : COMPARED_SECONDS) {
+			float[] signal = recording(seconds);
+			long timelineNanos = 0, naiveNanos = 0;
+			int timelineRight = 0, naiveRight = 0, windows = 0;
+			for (int run = 0; run < RUNS; run++) {
+				long start = System.nanoTime();
+				StressTimeline timeline = new Analysis().analyseTimeline(signal.clone());
+				timelineNanos = System.nanoTime() - start;
+				timelineRight = 0;
+				windows = timeline.size();
+				for (int w = 0; w < timeline.size(); w++)
+					if (isRight(timeline.getStart(w), timeline.getWindowSeconds(), seconds, timeline.getDecision(w)))
+						timelineRight++;
+
+				int window = Math.round(StressTimeline.DEFAULT_WINDOW_SECONDS * 44100);
+				int hop = Math.round(window * (1 - StressTimeline.DEFAULT_OVERLAP));
+				start = System.nanoTime();
+				naiveRight = 0;
+				for (int from = 0; from + window <= signal.length; from += hop) {
+					try {
+						MicrotremorFunction function = new Analysis().startAnalysis(Arrays.copyOfRange(signal, from,
+								from + window));
+						if (isRight(from / 44100F, StressTimeline.DEFAULT_WINDOW_SECONDS, seconds,
+								function.getDecision()))
+							naiveRight++;
+					} catch (AnalysisInterruptedException e) {
+						// okno bez funkcji IMF jest ocenione błędnie
+					}
+				}
+				naiveNanos = System.nanoTime() - start;
+			}
+			boolean ok = timelineRight >= naiveRight;
+			failed |= !ok;
+			System.out.printf("%d s, %d windows: timeline %d ms, %d right; per-window startAnalysis %d ms, %d right %s%n",
+					seconds, windows, timelineNanos / 1000000, timelineRight, naiveNanos / 1000000, naiveRight,
+					ok ? "OK" : "FAILED");
+		}
+
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Sprawdzenie decyzji w oknie: w pierwszej połowie nagrania (10 Hz) nie
+	 * ma stresu, w drugiej (6 Hz) jest. Okna obejmujące środek nagrania nie
+	 * są liczone jako poprawne.
+	 */
+	private static boolean isRight(float start, float window, float seconds, boolean decision) {
+		if (start + window <= seconds / 2)
+			return !decision;
+		return start >= seconds / 2 && decision;
+	}
+
+	/**
+	 * Nagranie o częstotliwości próbkowania 44100 Hz: głos z modulacją
+	 * częstotliwości mikrodrżeniem i tonem 310 Hz. Mikrodrżenie ma 10 Hz w
+	 * pierwszej połowie i 6 Hz w drugiej, z ciągłą fazą.
+	 */
+	private static float[] recording(float seconds) {
+		float[] signal = new float[Math.round(44100 * seconds)];
+		Random random = new Random(1);
+		double phase = 0;
+		for (int i = 0; i < signal.length; i++) {
+			double t = i / 44100.0;
+			phase += 2 * Math.PI * ((t < seconds / 2.0) ? 10 : 6) / 44100.0;
+			signal[i] = (float) (0.3 * Math.sin(2 * Math.PI * 150 * t + 0.5 * Math.sin(phase)) + 0.2
+					* Math.sin(2 * Math.PI * 310 * t) + 0.1 * Math.sin(phase) + 0.05 * random.nextGaussian());
+		}
+		return signal;
+	}
+}
@@ -0,0 +1,66 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa AkimaInterpolator
+ *
+ * Interpolacja Akimy. Pochodna w węźle jest średnią nachyleń sąsiednich
+ * przedziałów ważoną różnicami nachyleń dalszych przedziałów, więc zależy
+ * tylko od pięciu najbliższych węzłów. Pojedynczy odstający węzeł wpływa
+ * tylko na sąsiednie przedziały, a obwiednia oscyluje mniej niż naturalne
+ * funkcje sklejane. Współczynniki są liczone lokalnie, bez rozwiązywania
+ * układu równań.
+ *
+ * Wagi zawierają dodatkowo moduły sum nachyleń (zmodyfikowana interpolacja
+ * Akimy). Przy pierwotnych wagach obwiednie sygnału z szumem przecinały
+ * sygnał między węzłami i przesiewanie było rozbieżne - energia kolejnych
+ * funkcji IMF rosła zamiast maleć.
+ *
+ ****************************************************************************
+ */
+class AkimaInterpolator extends PiecewiseCubicInterpolator {
+
+	/**
+	 * Nachylenia przedziałów przesunięte o 2, z dwoma przedziałami
+	 * ekstrapolowanymi liniowo po każdej stronie
+	 */
+	private float[] slopes = new float[0];
+
+	@Override
+	void coefficients(int[] x, int nrOfKnots, float[] samples, CancellationCheck cancellation)
+			throws AnalysisInterruptedException {
+		final int n = nrOfKnots - 1;
+		final float[] m = slopes;
+
+		for (int j = 0; j < n; j++)
+			m[j + 2] = (samples[x[j + 1]] - samples[x[j]]) / (x[j + 1] - x[j]);
+		m[1] = 2F * m[2] - m[3];
+		m[0] = 2F * m[1] - m[2];
+		m[n + 2] = 2F * m[n + 1] - m[n];
+		m[n + 3] = 2F * m[n + 2] - m[n + 1];
+
+		// pochodna w węźle k leżącym między przedziałami k - 1 i k
+		for (int k = 0; k <= n; k++) {
+			if ((k & (CHECK_INTERVAL - 1)) == 0)
+				checkCancellation(cancellation);
+			float w1 = Math.abs(m[k + 3] - m[k + 2]) + Math.abs(m[k + 3] + m[k + 2]) / 2F;
+			float w2 = Math.abs(m[k + 1] - m[k]) + Math.abs(m[k + 1] + m[k]) / 2F;
+			if (w1 + w2 == 0)
+				b[k] = (m[k + 1] + m[k + 2]) / 2F;
+			else
+				b[k] = (w1 * m[k + 1] + w2 * m[k + 2]) / (w1 + w2);
+		}
+
+		// współczynniki wielomianów Hermite'a
+		for (int j = 0; j < n; j++) {
+			float h = x[j + 1] - x[j];
+			float slope = m[j + 2];
+			c[j] = (3F * slope - 2F * b[j] - b[j + 1]) / h;
+			d[j] = (b[j] + b[j + 1] - 2F * slope) / (h * h);
+		}
+	}
+
+	@Override
+	void allocate(int size) {
+		slopes = new float[size + 3];
+	}
+}
@@ -1,164 +1,81 @@
 package vsa;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-
-import org.apache.commons.math3.analysis.interpolation.SplineInterpolator;
-import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import access.mypackage.offdebug.Debug;
 
-/****************************************************
- * Klasa IMFFunction
- * 
- * klasa przechowuj�ca wyliczon� funkcj� IMF.
+/**************************************************************************
+ * Klasa Analysis
  * 
- ****************************************************
+ * Klasa wykonuj�ca algorytm EMD oraz szereg operacji z nim zwi�zanych.
+ *
+ **************************************************************************
  */
-class IMFFunction {
-	/**
-	 * Funkcja IMF w postaci tablicy float
-	 */
-	float[] samples;
-	/**
-	 * Cz�stotliwo�� funkcji IMF
-	 */
-	float freq;
+public class Analysis {
 
 	/**
-	 * Konstruktor 1. Domy�lnie ustawia cz�stotliwo�� jako 0.
+	 * --------------------------------------------------------------------
 	 * 
-	 * @param size
-	 *            rozmiar funkcji IMF
-	 */
-	IMFFunction(int size) {
-		samples = new float[size];
-		freq = 0;
-	}
-
-	/**
-	 * Konstruktor 2.
+	 * Typy wyliczeniowe
 	 * 
-	 * @param samples
-	 *            funkcja IMF w postaci tablicy float
-	 * @param freq
-	 *            wyliczona cz�stotliwo��
-	 */
-	IMFFunction(float[] samples, float freq) {
-		this.samples = samples;
-		this.freq = freq;
-	}
-}
-
-/****************************************************************************
- * Klasa MicrotremorFunction
- * 
- * Klasa opisuj�ca funkcje zawieraj�c� mikrodr�enie. Zawiera pole prywatne
- * b�d�ce decyzj� wykrycia stresu - warto�� true; oraz pola zawieraj�ce przebieg
- * funkcji i u�rednion� cz�stotliwo��.
- * 
- * **************************************************************************
- */
-class MicrotremorFunction extends IMFFunction {
-
-	/**
-	 * Zmienna okre�laj�ca czy stres zosta� wykryty
+	 * --------------------------------------------------------------------
 	 */
-	private boolean stressDetected = false;
 
 	/**
-	 * Konstruktor.
-	 * 
-	 * @param samples
-	 *            tablica przedstawiaj�ca funkcj� znajduj�c� si� najbli�ej
-	 *            mikrodr�enia
-	 * @param freq
-	 *            cz�stotliwo�� funkcji
-	 * @param stressDetected
-	 *            stwierdzenie wyst�powania stresu
+	 * Typ wyliczeniowy okre�laj�cy stan w jakim jest proces analizy Umo�liwia
+	 * przerwanie wykonywania
 	 */
-	MicrotremorFunction(float[] samples, float freq, boolean stressDetected) {
-		super(samples, freq);
-		this.stressDetected = stressDetected;
+	enum AnalysisState {
+		INACTIVITY, ANALYSING, INTERRUPTING
 	}
 
 	/**
-	 * Zwraca informacje czy w danej funkcji stwierdzono wyst�powanie stresu.
-	 * 
-	 * @return zmienna typu boolean okre�laj�ca wyst�powanie stresu
+	 * Typ wyliczeniowy określający sposób filtrowania i decymacji sygnału
+	 * przed algorytmem EMD: pojedynczy filtr LowPassFilter albo kaskada
+	 * DecimationCascade
 	 */
-	public boolean getDecision() {
-		return stressDetected;
-	}
-}
-
-/*****************************************************************************
- * Klasa AnalysisInterruptedException
- * 
- * Wyj�tek stworzony do obs�ugi przerwania analizy. Dziedziczy po klasie
- * Exception.
- * 
- * ***************************************************************************
- */
-@SuppressWarnings("serial")
-class AnalysisInterruptedException extends Exception {
-
-	public AnalysisInterruptedException() {
-		Debug.debug("AnalysisInterruptedException");
+	enum FilterMode {
+		SINGLE_STAGE, CASCADE
 	}
-}
 
-/*************************************************************************
- * Klasa Zeros
- * 
- * Klasa zawieraj�ca liczb� oraz po�o�enie miejsc zerowych funkcji
- * 
- *************************************************************************
- */
-class Zeros {
-	/**
-	 * Liczba miejsc zerowych
-	 */
-	int nrOfZeros;
 	/**
-	 * Po�o�enie miejsc zerowych
+	 * Typ wyliczeniowy określający sposób dekompozycji sygnału: algorytm EMD
+	 * na całym sygnale, w zachodzących na siebie oknach (SegmentedEmd),
+	 * zespołowy algorytm EMD (EnsembleEmd), zespołowy algorytm EMD z
+	 * adaptacyjnym szumem (CompleteEnsembleEmd) albo algorytm EMD ograniczony
+	 * do funkcji IMF wskazanych przez przebieg zgrubny (CoarseToFineEmd)
 	 */
-	ArrayList<Integer> zeroPoints;
+	enum DecompositionMode {
+		EMD, SEGMENTED, EEMD, CEEMDAN, COARSE_TO_FINE
+	}
 
 	/**
-	 * Konstruktor
+	 * Typ wyliczeniowy określający rodzaj szumu dodawanego do sygnału w
+	 * zespołowym algorytmie EMD
 	 */
-	public Zeros() {
-		nrOfZeros = 0;
-		zeroPoints = new ArrayList<Integer>();
+	enum NoiseType {
+		WHITE, BROWN
 	}
-}
-
-/**************************************************************************
- * Klasa Analysis
- * 
- * Klasa wykonuj�ca algorytm EMD oraz szereg operacji z nim zwi�zanych.
- *
- **************************************************************************
- */
-public class Analysis {
 
 	/**
-	 * --------------------------------------------------------------------
-	 * 
-	 * Typy wyliczeniowe
-	 * 
-	 * --------------------------------------------------------------------
+	 * Typ wyliczeniowy określający, które funkcje IMF są przechowywane w
+	 * wyniku dekompozycji (ImfSet): wszystkie, tylko najbliższa mikrodrżeniu
+	 * albo same częstotliwości
 	 */
+	enum ImfRetention {
+		ALL, BEST_MATCH, FREQUENCIES_ONLY
+	}
 
 	/**
-	 * Typ wyliczeniowy okre�laj�cy stan w jakim jest proces analizy Umo�liwia
-	 * przerwanie wykonywania
+	 * Typ wyliczeniowy określający interpolację obwiedni w algorytmie EMD:
+	 * naturalne funkcje sklejane (CubicSpline), interpolacja Hermite'a
+	 * zachowująca monotoniczność (PchipInterpolator), interpolacja Akimy
+	 * (AkimaInterpolator) albo liniowa (LinearInterpolator)
 	 */
-	enum AnalysisState {
-		INACTIVITY, ANALYSING, INTERRUPTING
+	enum EnvelopeType {
+		CUBIC, PCHIP, AKIMA, LINEAR
 	}
 
 	/**
@@ -179,6 +96,27 @@ public class Analysis {
 	// cz�stotliwo�� pr�bkowania
 	private static final float sampleRate = (float) AudioFileOperations.getAudioFormat().getSampleRate();
 
+	// domyślny współczynnik decymacji sygnału po filtrze dolnoprzepustowym.
+	// Dla 44,1 kHz daje częstotliwość próbkowania 918,75 Hz, co przy
+	// częstotliwości odcięcia filtru 400 Hz nie powoduje aliasingu pasma
+	// przepustowego, a zakres mikrodrżenia (8 - 12 Hz) jest wielokrotnie
+	// niższy
+	static final int DEFAULT_DECIMATION_FACTOR = 48;
+
+	// Częstotliwość mikrodrżenia, do której jest dobierana funkcja IMF
+	static final float MICROTREMOR_FREQUENCY = 10F;
+
+	// Granice pasma mikrodrżenia bez stresu - poza nimi decision() stwierdza
+	// stres
+	static final float STRESS_LOWER_FREQUENCY = 8F;
+	static final float STRESS_UPPER_FREQUENCY = 12F;
+
+	// Długość sygnału, od której obwiednie górna i dolna są wyznaczane
+	// równolegle. Jedna interpolacja kosztuje ok. 3,5 ns na próbkę, więc przy
+	// 2^15 próbkach (ok. 36 s sygnału po decymacji) trwa ok. 120 us, znacznie
+	// dłużej niż przekazanie zadania do uśpionego wątku puli
+	static final int PARALLEL_ENVELOPE_THRESHOLD = 1 << 15;
+
 	// przedzia� tolerancji eliminuj�cy szum kwantyzacji -> warto�� jednego bita
 	// zrzutowana na liczb� typu float
 	private static final float delta = 1.0F / (float) (Math.pow(2.0, 15));
@@ -189,6 +127,90 @@ public class Analysis {
 	// obiekt s�u��cy do synchronizacji zmiany stanu procesu analizy
 	private Object analysisLock = new Object();
 
+	// bufory robocze algorytmu EMD, mogą być współdzielone przez kolejne
+	// analizy
+	private final EmdWorkspace workspace;
+
+	// współczynnik decymacji sygnału przed algorytmem EMD
+	private int decimationFactor = DEFAULT_DECIMATION_FACTOR;
+
+	// sposób filtrowania i decymacji sygnału
+	private FilterMode filterMode = FilterMode.SINGLE_STAGE;
+
+	// sposób dekompozycji sygnału
+	private DecompositionMode decompositionMode = DecompositionMode.EMD;
+
+	// zakres funkcji IMF przechowywanych w wyniku dekompozycji
+	private ImfRetention imfRetention = ImfRetention.BEST_MATCH;
+
+	// interpolacja obwiedni
+	private volatile EnvelopeType envelopeType = EnvelopeType.CUBIC;
+
+	// warunki zakończenia przesiewania funkcji IMF
+	private volatile SiftingStopPolicy stopPolicy = SiftingStopPolicy.DEFAULT;
+
+	// liczby iteracji przesiewania kolejnych funkcji IMF z ostatniej analizy
+	private volatile int[] siftCounts = new int[0];
+
+	// czy przed algorytmem EMD jest wykonywana ocena widmowa
+	private volatile boolean spectralScreening = false;
+
+	// wynik oceny widmowej z ostatniej analizy
+	private volatile SpectralScreen spectralScreen;
+
+	// parametry zespołowego algorytmu EMD: liczba prób, odchylenie
+	// standardowe szumu względem sygnału i rodzaj szumu
+	private int ensembleSize = EnsembleEmd.DEFAULT_TRIALS;
+	private float noiseAmplitude = EnsembleEmd.DEFAULT_NOISE_AMPLITUDE;
+	private NoiseType noiseType = NoiseType.WHITE;
+
+	// limit czasu analizy w milisekundach, 0 - bez limitu
+	private volatile long timeBudget = 0;
+
+	// chwila (System.nanoTime()), po której analiza jest przerywana, oraz
+	// informacja czy jest ustawiona
+	private volatile long deadline;
+	private volatile boolean deadlineSet = false;
+
+	// czy dekompozycja została przerwana po przekroczeniu limitu czasu
+	private volatile boolean deadlineReached = false;
+
+	// sprawdzenie przerwania analizy przez użytkownika albo po przekroczeniu
+	// limitu czasu
+	private final CancellationCheck cancellation = new CancellationCheck() {
+		@Override
+		public boolean isCancelled() {
+			return getAnalysisState() == AnalysisState.INTERRUPTING || isDeadlineExpired();
+		}
+	};
+
+	/**
+	 * -------------------------------------------------------------------------
+	 * 
+	 * Konstruktory
+	 * 
+	 * -------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Konstruktor domyślny. Tworzy nowy zestaw buforów roboczych.
+	 */
+	public Analysis() {
+		this(new EmdWorkspace());
+	}
+
+	/**
+	 * Konstruktor wykorzystujący istniejący zestaw buforów roboczych, np. z
+	 * poprzedniej analizy. Jeden zestaw buforów nie może być używany
+	 * jednocześnie przez kilka analiz.
+	 * 
+	 * @param workspace
+	 *            bufory robocze algorytmu EMD
+	 */
+	Analysis(EmdWorkspace workspace) {
+		this.workspace = workspace;
+	}
+
 	/**
 	 * -------------------------------------------------------------------------
 	 * --
@@ -209,27 +231,247 @@ public class Analysis {
 	 *             przerwanie analizy
 	 */
 	public MicrotremorFunction startAnalysis(float[] samples) throws AnalysisInterruptedException {
-		// Mapa zawieraj�ca nr porz�dkowy, oraz klas� IMFFunction
-		HashMap<Integer, IMFFunction> imfMap = new HashMap<Integer, IMFFunction>();
-
 		// Ustaw stan procesu analizy na Analysing
 		setAnalysisState(AnalysisState.ANALYSING);
 
-		// Na�� filtr dolnoprzepustowy. Je�eli d�ugo�� pr�bek by�a zbyt kr�tka
+		// limit czasu obejmuje również filtrację
+		startDeadline();
+
+		// Na�� filtr dolnoprzepustowy i zmniejsz częstotliwość próbkowania -
+		// algorytm EMD i wyliczanie częstotliwości odbywają się na sygnale po
+		// decymacji. Je�eli d�ugo�� pr�bek by�a zbyt kr�tka
 		// Funkcja zwraca null i jest przerywany proces analizy
-		if ((samples = LowPassFilter.filetring(samples)) == null)
+		if ((samples = lowPassAndDecimate(samples)) == null)
 			setAnalysisState(AnalysisState.INTERRUPTING);
 		;
 		if (getAnalysisState() == AnalysisState.INTERRUPTING)
 			throw new AnalysisInterruptedException();
 
-		// Wykonaj algorytm EMD
-		emd(samples, imfMap);
+		return findMicrotremor(samples);
+	}
+
+	/**
+	 * Wyszukiwanie mikrodrżenia w sygnale, który został już przefiltrowany i
+	 * zdecymowany (np. przez StreamingLowPassFilter podczas nagrywania).
+	 * Częstotliwość próbkowania sygnału musi być równa
+	 * getAnalysisSampleRate(). Tablica z próbkami jest modyfikowana.
+	 * 
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @return funkcja najbliższa mikrodrżeniu
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	MicrotremorFunction analyseDecimated(float[] samples) throws AnalysisInterruptedException {
+		startDeadline();
+		return findMicrotremor(samples);
+	}
+
+	/**
+	 * Dekompozycja sygnału po decymacji i wybór funkcji najbliższej
+	 * mikrodrżeniu. Po przekroczeniu limitu czasu zwracany jest wynik
+	 * częściowy, wyznaczony z funkcji IMF otrzymanych do tej pory. Przy
+	 * włączonej ocenie widmowej i jednoznacznym jej wyniku dekompozycja jest
+	 * pomijana, a zwracana funkcja nie ma próbek.
+	 * 
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @return funkcja najbliższa mikrodrżeniu
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy albo brak jakiegokolwiek wyniku przed
+	 *             upływem limitu czasu
+	 */
+	private MicrotremorFunction findMicrotremor(float[] samples) throws AnalysisInterruptedException {
+		// szybka ocena widmowa - przy jednoznacznym wyniku algorytm EMD nie
+		// jest potrzebny
+		spectralScreen = null;
+		if (spectralScreening) {
+			SpectralScreen screen = new SpectralScreen(samples, getAnalysisSampleRate());
+			spectralScreen = screen;
+			Debug.debug("Spectral screen: " + screen);
+			if (!screen.isAmbiguous()) {
+				siftCounts = new int[0];
+				float frequency = screen.getDominantFrequency();
+				return new MicrotremorFunction(null, frequency, decision(frequency));
+			}
+		}
+
+		// Funkcje IMF z ich częstotliwościami, próbki w zakresie imfRetention
+		ImfSet imfs = new ImfSet(samples.length, imfRetention);
+		decompose(samples, imfs);
+
+		// Zwr�� funkcj� najbli�sz� mikrodr�eniu
+		return findClosestFrequencyToMicrotremor(imfs);
+	}
+
+	/**
+	 * Dekompozycja sygnału po decymacji w wybranym trybie
+	 * (DecompositionMode) i zapamiętanie liczby iteracji przesiewania.
+	 * 
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param imfs
+	 *            wynik dekompozycji
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy albo brak jakiejkolwiek funkcji IMF
+	 *             przed upływem limitu czasu
+	 */
+	private void decompose(float[] samples, ImfSet imfs) throws AnalysisInterruptedException {
+		decompose(samples, imfs, (decompositionMode == DecompositionMode.SEGMENTED) ? new SegmentedEmd(this) : null);
+	}
+
+	/**
+	 * Dekompozycja sygnału po decymacji w oknach o podanych parametrach albo
+	 * w wybranym trybie (DecompositionMode) i zapamiętanie liczby iteracji
+	 * przesiewania.
+	 * 
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param imfs
+	 *            wynik dekompozycji
+	 * @param segmented
+	 *            dekompozycja w oknach albo null - wtedy sposób dekompozycji
+	 *            wynika z decompositionMode
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy albo brak jakiejkolwiek funkcji IMF
+	 *             przed upływem limitu czasu
+	 */
+	private void decompose(float[] samples, ImfSet imfs, SegmentedEmd segmented)
+			throws AnalysisInterruptedException {
+		deadlineReached = false;
+
+		// Wykonaj algorytm EMD na całym sygnale, w oknach albo zespołowo (EEMD,
+		// CEEMDAN)
+		if (segmented != null)
+			segmented.decompose(samples, imfs);
+		else if (decompositionMode == DecompositionMode.EEMD)
+			new EnsembleEmd(this, ensembleSize, noiseAmplitude, noiseType, EnsembleEmd.DEFAULT_SEED).decompose(
+					samples, imfs);
+		else if (decompositionMode == DecompositionMode.CEEMDAN)
+			new CompleteEnsembleEmd(this, ensembleSize, noiseAmplitude, noiseType, EnsembleEmd.DEFAULT_SEED)
+					.decompose(samples, imfs);
+		else if (decompositionMode == DecompositionMode.COARSE_TO_FINE)
+			new CoarseToFineEmd(this).decompose(samples, imfs, workspace);
+		else
+			emd(samples, imfs, workspace);
+		if (getAnalysisState() == AnalysisState.INTERRUPTING)
+			throw new AnalysisInterruptedException();
+
+		// zapamiętanie liczby iteracji przesiewania kolejnych funkcji IMF
+		int[] counts = imfs.getSiftCounts();
+		siftCounts = counts;
+		Debug.debug("Sift counts (" + stopPolicy + "): " + Arrays.toString(counts));
+
+		// po przekroczeniu limitu czasu bez żadnej funkcji IMF nie ma wyniku
+		if (deadlineReached) {
+			Debug.debug("Time budget of " + timeBudget + " ms exceeded, " + imfs.size() + " IMFs found");
+			if (imfs.isEmpty())
+				throw new AnalysisInterruptedException();
+		}
+	}
+
+	/**
+	 * Analiza stresu w czasie z domyślną długością okna
+	 * (StressTimeline.DEFAULT_WINDOW_SECONDS) i zakładką
+	 * (StressTimeline.DEFAULT_OVERLAP).
+	 * 
+	 * @param samples
+	 *            tablica float z audio
+	 * @return decyzje w kolejnych oknach
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	StressTimeline analyseTimeline(float[] samples) throws AnalysisInterruptedException {
+		return analyseTimeline(samples, StressTimeline.DEFAULT_WINDOW_SECONDS, StressTimeline.DEFAULT_OVERLAP);
+	}
+
+	/**
+	 * Analiza stresu w czasie: częstotliwość mikrodrżenia i decyzja w
+	 * kolejnych, zachodzących na siebie oknach. Sygnał jest filtrowany i
+	 * decymowany raz, a dekompozycja jest wykonywana raz dla całego sygnału -
+	 * w każdym oknie jest tylko wyznaczana częstotliwość każdej funkcji IMF
+	 * (z miejsc zerowych w oknie, tak jak w avgerageFrequency()) i wybierana
+	 * funkcja najbliższa częstotliwości mikrodrżenia. Okna nie powtarzają więc
+	 * filtracji ani przesiewania, a funkcje IMF nie mają zakłóceń na granicach
+	 * okien. Wynik w oknie może się różnić od startAnalysis() wykonanego na
+	 * samym fragmencie, bo funkcje IMF fragmentu nie są identyczne z
+	 * fragmentami funkcji IMF całego sygnału.
+	 * 
+	 * W trybie DecompositionMode.EMD sygnał jest rozkładany w blokach
+	 * (SegmentedEmd, StressTimeline.BLOCK_SECONDS z zakładką
+	 * StressTimeline.BLOCK_OVERLAP_SECONDS), bo liczba iteracji przesiewania
+	 * całego sygnału rośnie z jego długością i dekompozycja całości byłaby
+	 * wolniejsza od osobnej analizy każdego okna. Pozostałe tryby są
+	 * wykonywane tak jak w startAnalysis() - w trybie COARSE_TO_FINE funkcje
+	 * IMF są wyznaczane z całego sygnału, co przy mieszaniu modów w krótkich
+	 * blokach daje dokładniejsze wyniki w oknach kosztem czasu, który rośnie
+	 * z długością nagrania szybciej niż liniowo.
+	 * 
+	 * @param samples
+	 *            tablica float z audio
+	 * @param windowSeconds
+	 *            długość okna w sekundach
+	 * @param overlap
+	 *            część okna wspólna z następnym oknem, od 0 do 1
+	 * @return decyzje w kolejnych oknach
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	StressTimeline analyseTimeline(float[] samples, float windowSeconds, float overlap)
+			throws AnalysisInterruptedException {
+		if (windowSeconds <= 0 || overlap < 0 || overlap >= 1)
+			throw new IllegalArgumentException("Invalid window (" + windowSeconds + " s) or overlap (" + overlap + ")");
+		setAnalysisState(AnalysisState.ANALYSING);
+		startDeadline();
+
+		if ((samples = lowPassAndDecimate(samples)) == null)
+			setAnalysisState(AnalysisState.INTERRUPTING);
 		if (getAnalysisState() == AnalysisState.INTERRUPTING)
 			throw new AnalysisInterruptedException();
 
-		// Zwr�� funkcj� najbli�sz� mikrodr�eniu
-		return findClosestFrequencyToMicrotremor(imfMap);
+		// wszystkie funkcje IMF są potrzebne w każdym oknie
+		ImfSet imfs = new ImfSet(samples.length, ImfRetention.ALL);
+		if (decompositionMode == DecompositionMode.EMD)
+			decompose(samples, imfs, new SegmentedEmd(this, StressTimeline.BLOCK_SECONDS,
+					StressTimeline.BLOCK_OVERLAP_SECONDS));
+		else
+			decompose(samples, imfs);
+
+		// okna, ostatnie kończy się nie dalej niż sygnał; sygnał krótszy niż
+		// okno tworzy jedno okno
+		final float rate = getAnalysisSampleRate();
+		final int length = samples.length;
+		final int window = Math.min(length, Math.max(1, Math.round(windowSeconds * rate)));
+		final int hop = Math.max(1, Math.round(window * (1 - overlap)));
+		final int count = (length - window) / hop + 1;
+
+		float[] starts = new float[count];
+		float[] frequencies = new float[count];
+		boolean[] decisions = new boolean[count];
+
+		float[] data = imfs.getData();
+		float[] segment = new float[window];
+		Zeros zeros = new Zeros();
+		for (int w = 0; w < count; w++) {
+			int start = w * hop;
+			float closest = 0;
+			for (int k = 0; k < imfs.size(); k++) {
+				System.arraycopy(data, imfs.getOffset(k) + start, segment, 0, window);
+				float freq = avgerageFrequency(segment, window, zeros);
+				if (freq > 0 && (closest == 0 || Math.abs(MICROTREMOR_FREQUENCY - freq) < Math
+						.abs(MICROTREMOR_FREQUENCY - closest)))
+					closest = freq;
+			}
+			starts[w] = start / rate;
+			frequencies[w] = closest;
+			// bez częstotliwości w oknie nie ma podstaw do stwierdzenia stresu
+			decisions[w] = closest > 0 && decision(closest);
+
+			if (getAnalysisState() == AnalysisState.INTERRUPTING)
+				throw new AnalysisInterruptedException();
+		}
+
+		return new StressTimeline(window / rate, hop / rate, starts, frequencies, decisions, deadlineReached);
 	}
 
 	/**
@@ -254,6 +496,288 @@ public class Analysis {
 		}
 	}
 
+	/**
+	 * Ustawienie współczynnika decymacji sygnału po filtrze
+	 * dolnoprzepustowym. Wartość 1 oznacza analizę z pełną częstotliwością
+	 * próbkowania.
+	 * 
+	 * @param factor
+	 *            współczynnik decymacji
+	 */
+	public void setDecimationFactor(int factor) {
+		if (factor < 1)
+			throw new IllegalArgumentException("Invalid decimation factor: " + factor);
+		decimationFactor = factor;
+	}
+
+	/**
+	 * Ustawienie sposobu filtrowania i decymacji sygnału.
+	 * 
+	 * @param mode
+	 *            pojedynczy filtr albo kaskada filtrów
+	 */
+	public void setFilterMode(FilterMode mode) {
+		filterMode = mode;
+	}
+
+	/**
+	 * Zwraca sposób filtrowania i decymacji sygnału.
+	 * 
+	 * @return sposób filtrowania
+	 */
+	public FilterMode getFilterMode() {
+		return filterMode;
+	}
+
+	/**
+	 * Ustawienie sposobu dekompozycji sygnału. Dekompozycja w oknach jest
+	 * przeznaczona dla długich nagrań.
+	 * 
+	 * @param mode
+	 *            algorytm EMD na całym sygnale albo w oknach
+	 */
+	public void setDecompositionMode(DecompositionMode mode) {
+		decompositionMode = mode;
+	}
+
+	/**
+	 * Zwraca sposób dekompozycji sygnału.
+	 * 
+	 * @return sposób dekompozycji
+	 */
+	public DecompositionMode getDecompositionMode() {
+		return decompositionMode;
+	}
+
+	/**
+	 * Ustawienie zakresu funkcji IMF przechowywanych w trakcie dekompozycji.
+	 * Do wyniku analizy potrzebna jest tylko funkcja najbliższa mikrodrżeniu,
+	 * a przy samych częstotliwościach funkcja MicrotremorFunction nie ma
+	 * próbek, jest tylko częstotliwość i decyzja.
+	 * 
+	 * @param retention
+	 *            zakres przechowywanych funkcji IMF
+	 */
+	public void setImfRetention(ImfRetention retention) {
+		imfRetention = retention;
+	}
+
+	/**
+	 * Zwraca zakres funkcji IMF przechowywanych w trakcie dekompozycji.
+	 * 
+	 * @return zakres przechowywanych funkcji IMF
+	 */
+	public ImfRetention getImfRetention() {
+		return imfRetention;
+	}
+
+	/**
+	 * Ustawienie interpolacji obwiedni. Interpolacja liniowa jest
+	 * najtańsza, a PCHIP i Akimy lepiej znoszą odstające ekstrema, ale
+	 * obwiednie bez ciągłej drugiej pochodnej zwykle wymagają więcej iteracji
+	 * przesiewania i dają więcej funkcji IMF niż naturalne funkcje sklejane.
+	 * Zmiana interpolacji może przesunąć wyznaczoną częstotliwość
+	 * mikrodrżenia.
+	 * 
+	 * @param type
+	 *            rodzaj interpolacji
+	 */
+	public void setEnvelopeType(EnvelopeType type) {
+		envelopeType = type;
+	}
+
+	/**
+	 * Zwraca rodzaj interpolacji obwiedni.
+	 * 
+	 * @return rodzaj interpolacji
+	 */
+	public EnvelopeType getEnvelopeType() {
+		return envelopeType;
+	}
+
+	/**
+	 * Ustawienie parametrów zespołowego algorytmu EMD.
+	 * 
+	 * @param trials
+	 *            liczba prób
+	 * @param amplitude
+	 *            odchylenie standardowe szumu względem odchylenia
+	 *            standardowego sygnału
+	 * @param type
+	 *            rodzaj szumu
+	 */
+	public void setEnsemble(int trials, float amplitude, NoiseType type) {
+		if (trials < 1)
+			throw new IllegalArgumentException("Invalid number of trials: " + trials);
+		if (amplitude <= 0)
+			throw new IllegalArgumentException("Invalid noise amplitude: " + amplitude);
+		ensembleSize = trials;
+		noiseAmplitude = amplitude;
+		noiseType = type;
+	}
+
+	/**
+	 * Zwraca liczbę prób zespołowego algorytmu EMD.
+	 * 
+	 * @return liczba prób
+	 */
+	public int getEnsembleSize() {
+		return ensembleSize;
+	}
+
+	/**
+	 * Ustawienie warunków zakończenia przesiewania funkcji IMF. Warunki muszą
+	 * ograniczać liczbę iteracji (stała albo maksymalna liczba iteracji),
+	 * żeby przesiewanie zawsze się kończyło.
+	 * 
+	 * @param policy
+	 *            warunki zakończenia przesiewania
+	 */
+	void setStopPolicy(SiftingStopPolicy policy) {
+		if (!policy.isBounded())
+			throw new IllegalArgumentException("Sifting stop policy without an iteration limit: " + policy);
+		stopPolicy = policy;
+	}
+
+	/**
+	 * Zwraca warunki zakończenia przesiewania funkcji IMF.
+	 * 
+	 * @return warunki zakończenia przesiewania
+	 */
+	SiftingStopPolicy getStopPolicy() {
+		return stopPolicy;
+	}
+
+	/**
+	 * Ustawienie limitu czasu analizy. Po jego przekroczeniu analiza zwraca
+	 * najlepsze przybliżenie otrzymane do tej pory, oznaczone jako wynik
+	 * częściowy (MicrotremorFunction.isPartial()).
+	 * 
+	 * @param milliseconds
+	 *            limit czasu w milisekundach, 0 oznacza brak limitu
+	 */
+	public void setTimeBudget(long milliseconds) {
+		if (milliseconds < 0)
+			throw new IllegalArgumentException("Invalid time budget: " + milliseconds);
+		timeBudget = milliseconds;
+	}
+
+	/**
+	 * Zwraca limit czasu analizy.
+	 * 
+	 * @return limit czasu w milisekundach, 0 oznacza brak limitu
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Zwraca liczby iteracji przesiewania kolejnych funkcji IMF z ostatniej
+	 * analizy. W trybie dekompozycji w oknach są to sumy iteracji ze
+	 * wszystkich okien.
+	 * 
+	 * @return liczby iteracji przesiewania
+	 */
+	public int[] getSiftCounts() {
+		return siftCounts.clone();
+	}
+
+	/**
+	 * Włączenie szybkiej oceny widmowej (SpectralScreen) przed algorytmem
+	 * EMD. Jeżeli ocena jest jednoznaczna, wynikiem analizy jest
+	 * częstotliwość dominująca w paśmie 4 - 16 Hz, bez próbek funkcji IMF, a
+	 * algorytm EMD nie jest wykonywany. Ocena jest jednoznaczna tylko dla
+	 * nagrań z jednym wyraźnym maksimum widma w środku pasma stresu (8 - 12
+	 * Hz), dla pozostałych wykonywana jest pełna analiza.
+	 * 
+	 * @param enabled
+	 *            czy ocena widmowa jest wykonywana
+	 */
+	public void setSpectralScreening(boolean enabled) {
+		spectralScreening = enabled;
+	}
+
+	/**
+	 * Sprawdzenie, czy przed algorytmem EMD jest wykonywana ocena widmowa.
+	 * 
+	 * @return true, jeżeli ocena widmowa jest włączona
+	 */
+	public boolean isSpectralScreening() {
+		return spectralScreening;
+	}
+
+	/**
+	 * Opis wszystkich ustawień, od których zależy wynik analizy - dwie
+	 * analizy tego samego sygnału z tym samym opisem dają ten sam wynik
+	 * (AnalysisCache). Opis obejmuje wersję pętli DspKernels, bo wersje
+	 * wektorowa i skalarna różnią się błędami zaokrągleń. Limit czasu nie
+	 * jest uwzględniany, bo wpływa tylko na wyniki częściowe
+	 * (MicrotremorFunction.isPartial()).
+	 * 
+	 * @return opis ustawień
+	 */
+	String getParametersDescription() {
+		return "rate=" + sampleRate + ";decimation=" + decimationFactor + ";filter=" + filterMode + ";mode="
+				+ decompositionMode + ";retention=" + imfRetention + ";envelope=" + envelopeType + ";stop="
+				+ stopPolicy + ";ensemble=" + ensembleSize + "/" + noiseAmplitude + "/" + noiseType + ";screening="
+				+ spectralScreening + ";vectorized=" + DspKernels.isVectorized();
+	}
+
+	/**
+	 * Zwraca wynik oceny widmowej z ostatniej analizy.
+	 * 
+	 * @return wynik oceny albo null, jeżeli ocena była wyłączona
+	 */
+	SpectralScreen getSpectralScreen() {
+		return spectralScreen;
+	}
+
+	/**
+	 * Zwraca współczynnik decymacji sygnału po filtrze dolnoprzepustowym.
+	 * 
+	 * @return współczynnik decymacji
+	 */
+	public int getDecimationFactor() {
+		return decimationFactor;
+	}
+
+	/**
+	 * Zwraca częstotliwość próbkowania sygnału, na którym jest wykonywany
+	 * algorytm EMD.
+	 * 
+	 * @return częstotliwość próbkowania po decymacji
+	 */
+	public float getAnalysisSampleRate() {
+		return sampleRate / decimationFactor;
+	}
+
+	/**
+	 * Wyznaczenie amplitudy i częstotliwości chwilowej funkcji mikrodrżenia
+	 * transformatą Hilberta. Daje przebieg częstotliwości w czasie bez
+	 * powtarzania algorytmu EMD w krótszych oknach.
+	 * 
+	 * @param function
+	 *            wynik analizy
+	 * @return amplituda i częstotliwość chwilowa albo null, jeżeli próbki
+	 *         funkcji nie są przechowywane (ImfRetention.FREQUENCIES_ONLY)
+	 *         lub jest ich za mało
+	 */
+	HilbertTransform instantaneousFrequency(MicrotremorFunction function) {
+		if (function == null || function.samples == null || function.samples.length < 2)
+			return null;
+		return new HilbertTransform(function.samples, getAnalysisSampleRate());
+	}
+
+	/**
+	 * Zwraca bufory robocze wykorzystywane przez analizę, które można przekazać
+	 * do kolejnej analizy.
+	 * 
+	 * @return bufory robocze algorytmu EMD
+	 */
+	EmdWorkspace getWorkspace() {
+		return workspace;
+	}
+
 	/**
 	 * Zwr�� stan procesu analizy
 	 * 
@@ -274,48 +798,162 @@ public class Analysis {
 	 */
 
 	/**
-	 * Znalezienie kolejnych funkcji IMF
+	 * Rozpoczęcie odliczania limitu czasu analizy.
+	 */
+	private void startDeadline() {
+		long budget = timeBudget;
+		deadlineSet = budget > 0;
+		deadline = System.nanoTime() + budget * 1000000L;
+	}
+
+	/**
+	 * Sprawdzenie, czy upłynął limit czasu analizy.
+	 * 
+	 * @return true, jeżeli limit czasu jest ustawiony i został przekroczony
+	 */
+	private boolean isDeadlineExpired() {
+		return deadlineSet && System.nanoTime() - deadline > 0;
+	}
+
+	/**
+	 * Sprawdzenie, czy w bieżącej analizie przesiewanie zostało przerwane po
+	 * przekroczeniu limitu czasu.
+	 * 
+	 * @return true, jeżeli wynik jest częściowy
+	 */
+	boolean isDeadlineReached() {
+		return deadlineReached;
+	}
+
+	/**
+	 * Filtracja dolnoprzepustowa i decymacja sygnału w wybranym trybie.
+	 * 
+	 * @param samples
+	 *            sygnał wejściowy
+	 * @return sygnał po decymacji albo null, jeżeli sygnał jest zbyt krótki
+	 *         do filtrowania
+	 */
+	private float[] lowPassAndDecimate(float[] samples) {
+		if (filterMode == FilterMode.CASCADE) {
+			if (samples.length < LowPassFilter.getLength())
+				return null;
+			DecimationCascade cascade = new DecimationCascade(sampleRate, getAnalysisSampleRate());
+			Debug.debug(cascade.getReport());
+			return cascade.process(samples);
+		}
+		return LowPassFilter.filetringDecimated(samples, decimationFactor);
+	}
+
+	/**
+	 * Znalezienie kolejnych funkcji IMF. Wszystkie bufory potrzebne w trakcie
+	 * przesiewania pochodzą z obiektu EmdWorkspace, dlatego w stanie ustalonym
+	 * iteracje nie alokują pamięci. Metoda może być wywoływana jednocześnie z
+	 * kilku wątków, o ile każdy z nich używa własnego zestawu buforów.
 	 * 
 	 * @param residuum
 	 *            sygna� wej�ciowy
-	 * @param imfMap
-	 *            mapa, w kt�rej mo�e by� przechowany numer oraz posta� funkcji
-	 *            IMF
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane kolejne funkcje IMF
+	 * @param workspace
+	 *            bufory robocze algorytmu
 	 * @throws AnalysisInterruptedException
 	 *             wyj�tek przerywaj�cy dzia�anie metody
 	 */
-	private void emd(float[] residuum, HashMap<Integer, IMFFunction> imfMap) throws AnalysisInterruptedException {
+	void emd(float[] residuum, ImfSet imfs, EmdWorkspace workspace) throws AnalysisInterruptedException {
+		emd(residuum, imfs, workspace, Integer.MAX_VALUE);
+	}
 
-		// zmienne przeznaczone do przechowywania g�rnej i dolnej obwiedni
-		float[] minEnvelope = new float[residuum.length];
-		float[] maxEnvelope = new float[residuum.length];
+	/**
+	 * Znalezienie co najwyżej maxImfs pierwszych funkcji IMF, np. tylko
+	 * pierwszej funkcji w kolejnych etapach algorytmu CEEMDAN.
+	 * 
+	 * @param residuum
+	 *            sygnał wejściowy, po zakończeniu - residuum
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane kolejne funkcje IMF
+	 * @param workspace
+	 *            bufory robocze algorytmu
+	 * @param maxImfs
+	 *            największa liczba funkcji IMF do wyznaczenia
+	 * @throws AnalysisInterruptedException
+	 *             wyjątek przerywający działanie metody
+	 */
+	void emd(float[] residuum, ImfSet imfs, EmdWorkspace workspace, int maxImfs)
+			throws AnalysisInterruptedException {
 
 		// sprawdzenie czy jest odpowiednia liczba sampli
 		if (residuum.length < 6)
 			throw new AnalysisInterruptedException();
 
-		// zmienna okre�laj�ca odchylenie standardowe
-		float squaredDifference;
+		try {
+			sifting(residuum, imfs, workspace, maxImfs);
+		} catch (AnalysisInterruptedException e) {
+			if (getAnalysisState() == AnalysisState.INTERRUPTING || !isDeadlineExpired())
+				throw e;
+
+			// przekroczony limit czasu - komponent w trakcie przesiewania
+			// jest zapisywany jako przybliżenie kolejnej funkcji IMF
+			deadlineReached = true;
+			final int length = residuum.length;
+			if (workspace.sifts > 0 && imfs.size() < maxImfs) {
+				float freq = avgerageFrequency(workspace.component, length, workspace.zeros);
+				if (freq >= 4F)
+					imfs.add(workspace.component, freq, workspace.sifts);
+			}
+		}
+	}
 
-		// listy zawieraj�ce po�o�enie minim�w i maksim�w
-		ArrayList<Integer> max = new ArrayList<Integer>();
-		ArrayList<Integer> min = new ArrayList<Integer>();
+	/**
+	 * Przesiewanie kolejnych funkcji IMF - właściwa część algorytmu EMD.
+	 * Przerwanie jest sprawdzane między kolejnymi etapami iteracji oraz
+	 * wewnątrz interpolacji funkcjami sklejanymi.
+	 * 
+	 * @param residuum
+	 *            sygnał wejściowy, po zakończeniu - residuum
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane kolejne funkcje IMF
+	 * @param workspace
+	 *            bufory robocze algorytmu
+	 * @param maxImfs
+	 *            największa liczba funkcji IMF do wyznaczenia
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie przez użytkownika albo po przekroczeniu limitu
+	 *             czasu
+	 */
+	private void sifting(float[] residuum, ImfSet imfs, EmdWorkspace workspace, int maxImfs)
+			throws AnalysisInterruptedException {
+
+		// długość analizowanego sygnału, bufory mogą być dłuższe
+		final int length = residuum.length;
+
+		workspace.ensureCapacity(length);
+		workspace.setEnvelopeType(envelopeType);
 
-		// zmienna przechowuj�ce kopie sygna�u
-		// do iteracji wewn�trz p�tli while (kolejne komponenty sygna�u)
-		float[] component = new float[residuum.length];
+		// zmienna okre�laj�ca odchylenie standardowe
+		float squaredDifference;
 
-		// zmienna na przechowywanie �redniej z obwiedni
-		float[] meanEnvelope = new float[component.length];
+		// warunki zakończenia przesiewania
+		final SiftingStopPolicy stopPolicy = this.stopPolicy;
+		final int sNumber = stopPolicy.getSNumber();
 
-		// zmienna do wyliczania odchylenia standardowego
-		// potrzebny jest sygna� przed i po odj�ciu �redniej z obwiedni
-		float[] previousComponent = new float[component.length];
+		// listy zawieraj�ce po�o�enie minim�w i maksim�w
+		IntList max = workspace.max;
+		IntList min = workspace.min;
 
 		// zewn�trzna p�tla wykonuj�ca si� a� do przerwania
 		outer: while (true) {
 			// skopiuj sygna� wej�ciowy do komponentu
-			component = residuum.clone();
+			System.arraycopy(residuum, 0, workspace.component, 0, length);
+
+			// liczba iteracji przesiewania oraz stan kryterium liczby S
+			int sifts = workspace.sifts = 0;
+			int sNumberCount = 0;
+			int previousExtrema = -1;
+			int previousZeros = -1;
+
+			// czy miejsca zerowe w workspace.zeros dotyczą bieżącego
+			// komponentu
+			boolean zerosCurrent = false;
 
 			// p�tla wewn�trzna
 			do {
@@ -324,10 +962,12 @@ public class Analysis {
 				max.clear();
 				min.clear();
 
-				// znajd� ekstrema funkcji component
-				extremum(max, min, component);
+				// znajd� ekstrema funkcji component, a dla kryterium liczby S
+				// także miejsca zerowe - w jednym przejściu
+				scan(workspace.component, length, max, min, (sNumber > 0) ? workspace.zeros : null);
+				zerosCurrent = sNumber > 0;
 
-				if (getAnalysisState() == AnalysisState.INTERRUPTING)
+				if (cancellation.isCancelled())
 					throw new AnalysisInterruptedException();
 
 				// warunki przerywaj�ce p�tle zewn�trzn�
@@ -338,112 +978,204 @@ public class Analysis {
 				if (min.size() < 3)
 					break outer;
 
+				// kryterium liczby S dla komponentu z poprzedniej iteracji:
+				// liczby ekstremów (bez punktów na krawędziach) i miejsc
+				// zerowych nie zmieniają się i różnią się co najwyżej o 1
+				if (sNumber > 0 && sifts > 0) {
+					int extrema = max.size() + min.size() - 4;
+					int zeroCount = workspace.zeros.nrOfZeros;
+					if (Math.abs(extrema - zeroCount) <= 1 && extrema == previousExtrema
+							&& zeroCount == previousZeros)
+						sNumberCount++;
+					else
+						sNumberCount = 0;
+					previousExtrema = extrema;
+					previousZeros = zeroCount;
+					if (sNumberCount >= sNumber)
+						break;
+				}
+
 				// interpolacja maksim�w i minim�w za pomoc� funkcji sklejanych
 				// 3 rz�du
-				maxEnvelope = interpolation(component, max);
-				minEnvelope = interpolation(component, min);
+				envelopes(workspace, length);
 
-				if (getAnalysisState() == AnalysisState.INTERRUPTING)
+				if (cancellation.isCancelled())
 					throw new AnalysisInterruptedException();
 
+				float[] maxEnvelope = workspace.maxEnvelope;
+				float[] minEnvelope = workspace.minEnvelope;
+				float[] meanEnvelope = workspace.meanEnvelope;
+
 				// wyliczenie �redniej z obwiedni
-				for (int i = 0; i < component.length; i++)
-					meanEnvelope[i] = (maxEnvelope[i] + minEnvelope[i]) / 2;
+				DspKernels.mean(maxEnvelope, minEnvelope, meanEnvelope, length);
 
-				// zapami�tanie obecnego komponentu
-				previousComponent = component.clone();
+				// zapami�tanie obecnego komponentu - zamiana buforów zamiast
+				// kopiowania
+				workspace.swapComponents();
+				float[] component = workspace.component;
+				float[] previousComponent = workspace.previousComponent;
 
 				// odjecie �redniej z obwiedni od komponentu
-				for (int i = 0; i < component.length; i++)
-					component[i] -= meanEnvelope[i];
-
-				// wyzerowanie odchylenia standardowego
-				squaredDifference = 0;
+				DspKernels.subtract(previousComponent, meanEnvelope, component, length);
 
 				// obliczenie odchylenia standardowego
-				for (int i = 0; i < component.length; i++)
-					squaredDifference += (component[i] - previousComponent[i]) * (component[i] - previousComponent[i])
-							/ (previousComponent[i] * previousComponent[i] + 1e-8);
+				squaredDifference = DspKernels.squaredDifference(component, previousComponent, length);
 
-				if (getAnalysisState() == AnalysisState.INTERRUPTING)
+				workspace.sifts = ++sifts;
+				zerosCurrent = false;
+
+				if (cancellation.isCancelled())
 					throw new AnalysisInterruptedException();
 
 				// warunek ko�cz�cy p�tl� wewn�trzn�
-			} while (squaredDifference > 5);
+			} while (!stopPolicy.isSatisfied(sifts, squaredDifference));
+
+			if (stopPolicy.isLimitReached(sifts))
+				Debug.debug("IMF " + imfs.size() + ": sifting stopped after " + sifts + " iterations");
 
-			// sprawdzenie cz�stotliwo�ci otrzymanej funkcji
-			float freq = avgerageFrequency(component);
+			float[] component = workspace.component;
+
+			// sprawdzenie cz�stotliwo�ci otrzymanej funkcji - po zakończeniu
+			// kryterium liczby S miejsca zerowe komponentu są już znane
+			float freq = zerosCurrent ? avgerageFrequency(workspace.zeros) : avgerageFrequency(component, length,
+					workspace.zeros);
 
 			// je�eli jej cz�stotliwo�� jest ju� na tyle niska, �e nie ma
 			// to wp�ywu na wykrywanie mikrodr�enia mo�na przerwa� obliczenia
 			if (freq < 4F)
 				break; // przerywa p�tl� zewn�trzn�
 
-			// je�eli uda�o si� otrzyma� cz�stotliwo�� to
-			// podana funkcja component b�dzie zapisana jako funkcja IMF
-			IMFFunction imfFunction = new IMFFunction(component.clone(), freq);
-
-			if (getAnalysisState() == AnalysisState.INTERRUPTING)
+			if (cancellation.isCancelled())
 				throw new AnalysisInterruptedException();
 
-			// dodaj do mapy znalezion� funkcj� IMF
-			imfMap.put(imfMap.size(), imfFunction);
+			// je�eli uda�o si� otrzyma� cz�stotliwo�� to
+			// podana funkcja component b�dzie zapisana jako funkcja IMF
+			// (próbki są kopiowane w zakresie polityki przechowywania)
+			imfs.add(component, freq, sifts);
 
 			// odjecie od sygna�u pocz�tkowego funkcji IMF
-			for (int i = 0; i < residuum.length; i++) {
+			for (int i = 0; i < length; i++) {
 				residuum[i] -= component[i];
 			}
+
+			if (imfs.size() >= maxImfs)
+				break;
 		} // koniec p�tli zewn�trznej
+
+		Debug.debug("EMD workspace: " + workspace.getAllocationCount() + " allocations, "
+				+ workspace.getAllocatedBytes() + " bytes");
 	} // koniec metody emd
 
+	/**
+	 * Wyznaczenie obwiedni górnej i dolnej komponentu. Obie interpolacje są
+	 * niezależne (osobne funkcje sklejane i bufory w obiekcie EmdWorkspace),
+	 * więc dla długich sygnałów obwiednia dolna jest wyznaczana w zadaniu
+	 * puli AnalysisThreadPool, a górna w tym samym czasie w bieżącym wątku.
+	 * Dla krótkich sygnałów albo puli z jednym wątkiem obie obwiednie są
+	 * wyznaczane kolejno.
+	 * 
+	 * @param workspace
+	 *            bufory robocze algorytmu z komponentem i listami ekstremów
+	 * @param length
+	 *            liczba próbek komponentu
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy w trakcie interpolacji
+	 */
+	private void envelopes(EmdWorkspace workspace, int length) throws AnalysisInterruptedException {
+		if (length < PARALLEL_ENVELOPE_THRESHOLD || AnalysisThreadPool.getParallelism() < 2) {
+			interpolation(workspace.component, length, workspace.max, workspace.maxInterpolator, workspace.maxEnvelope);
+			interpolation(workspace.component, length, workspace.min, workspace.minInterpolator, workspace.minEnvelope);
+			return;
+		}
+
+		// w wątku puli (np. w próbach EEMD) zadanie jest odkładane na
+		// własną kolejkę wątku, poza pulą jest przekazywane do puli
+		EnvelopeTask minTask = new EnvelopeTask(workspace.component, length, workspace.min, workspace.minInterpolator,
+				workspace.minEnvelope);
+		if (ForkJoinTask.inForkJoinPool())
+			minTask.fork();
+		else
+			AnalysisThreadPool.get().execute(minTask);
+
+		AnalysisInterruptedException interrupted = null;
+		try {
+			interpolation(workspace.component, length, workspace.max, workspace.maxInterpolator, workspace.maxEnvelope);
+		} catch (AnalysisInterruptedException e) {
+			interrupted = e;
+		}
+
+		// oczekiwanie na obwiednię dolną również po przerwaniu, żeby zadanie
+		// nie pisało do buforów używanych w dalszej części analizy
+		minTask.join();
+		if (interrupted != null)
+			throw interrupted;
+		if (minTask.interrupted != null)
+			throw minTask.interrupted;
+	}
+
+	/****************************************************************
+	 * Klasa EnvelopeTask
+	 *
+	 * Wyznaczenie jednej obwiedni w wątku puli
+	 *
+	 ****************************************************************
+	 */
+	@SuppressWarnings("serial")
+	private class EnvelopeTask extends RecursiveAction {
+		private final float[] samples;
+		private final int length;
+		private final IntList list;
+		private final EnvelopeInterpolator spline;
+		private final float[] envelope;
+
+		/**
+		 * Wyjątek przerwania analizy zgłoszony w trakcie interpolacji
+		 */
+		AnalysisInterruptedException interrupted;
+
+		EnvelopeTask(float[] samples, int length, IntList list, EnvelopeInterpolator spline, float[] envelope) {
+			this.samples = samples;
+			this.length = length;
+			this.list = list;
+			this.spline = spline;
+			this.envelope = envelope;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				interpolation(samples, length, list, spline, envelope);
+			} catch (AnalysisInterruptedException e) {
+				interrupted = e;
+			}
+		}
+	}
+
 	/**
 	 * Metoda interpoluj�ca sygna� funkcjami sklejanymi trzeciego rz�du, na
 	 * podstawie podanych punkt�w. Lista okre�la po�o�enie w osi czasu punkt�w.
-	 * Ich warto�ci s� pobierane z tablicy samples.
+	 * Ich warto�ci s� pobierane z tablicy samples. Wynik jest zapisywany do
+	 * podanego bufora.
 	 * 
 	 * @param samples
 	 *            funkcja, z kt�rej maj� by� wczytane warto�ci na osi y
+	 * @param length
+	 *            liczba próbek funkcji
 	 * @param list
 	 *            lista po�o�enia punkt�w na osi x
-	 * @return wynik interpolacji
-	 */
-	private float[] interpolation(float[] samples, ArrayList<Integer> list) {
-
-		// interpolowana funkcja
-		float[] interpolatedFunction = new float[samples.length];
-
-		// Iterator do poruszania si� po li�cie
-		Iterator<Integer> iterator = list.iterator();
-
-		// punkty, na podstawie kt�rych ma by� dokonana interpolacja
-		double[] x = new double[list.size()];
-		double[] y = new double[list.size()];
-
-		int j = 0;
-		int index = 0;
-		// je�li jest nast�pny punkt
-		while (iterator.hasNext()) {
-			// zapami�taj indeks tego punktu
-			index = iterator.next();
-			// indeks jest po�o�eniem pr�bki na osi x
-			x[j] = (double) index;
-			// warto�� pr�bki jest przechowywana w tablicy samples
-			y[j] = (double) samples[index];
-			j++;
-		}
-
-		// stworzenie obiektu wyliczaj�cego funkcje s�u��ce do interpolacji
-		SplineInterpolator interpolator = new SplineInterpolator();
-		// zbi�r funkcji na podstawie, kt�rych jest okre�lana warto�� dowolnego
-		// punktu na osi x
-		PolynomialSplineFunction poly;
-		poly = interpolator.interpolate(x, y);
-
-		// obliczenie warto�ci dla ka�dej pr�bki w sygnale
-		for (int i = 0; i < samples.length; i++)
-			interpolatedFunction[i] = (float) poly.value((double) i);
+	 * @param spline
+	 *            interpolacja wykorzystywana do wyznaczenia obwiedni
+	 * @param interpolatedFunction
+	 *            bufor, do którego zostanie zapisany wynik interpolacji
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy w trakcie interpolacji
+	 */
+	private void interpolation(float[] samples, int length, IntList list, EnvelopeInterpolator spline,
+			float[] interpolatedFunction) throws AnalysisInterruptedException {
 
-		return interpolatedFunction;
+		// obliczenie warto�ci dla ka�dej pr�bki w sygnale, w�z�ami s�
+		// punkty z listy
+		spline.interpolate(list.array(), list.size(), samples, interpolatedFunction, length, cancellation);
 	} // koniec metody interpolation
 
 	/**
@@ -452,16 +1184,35 @@ public class Analysis {
 	 * 
 	 * @param samples
 	 *            sygna�, z kt�rego ma by� obliczona �rednia cz�stotliwo��
+	 * @param length
+	 *            liczba próbek sygnału
+	 * @param zeros
+	 *            obiekt, do którego zostaną zapisane miejsca zerowe
 	 * @return �rednia cz�stotliwo��
 	 * @throws AnalysisInterruptedException
 	 *             wyj�tek przerywaj�cy dzia�anie metody
 	 */
-	private float avgerageFrequency(float[] samples) throws AnalysisInterruptedException {
-
-		float freq = 0F;
+	float avgerageFrequency(float[] samples, int length, Zeros zeros) throws AnalysisInterruptedException {
 
 		// znalezienie miejsc zerowych w sygnale
-		Zeros zeros = findingZeros(samples);
+		scan(samples, length, null, null, zeros);
+
+		return avgerageFrequency(zeros);
+	}
+
+	/**
+	 * Obliczenie średniej częstotliwości z miejsc zerowych znalezionych
+	 * wcześniej metodą scan(), bez ponownego przeglądania sygnału.
+	 * 
+	 * @param zeros
+	 *            miejsca zerowe funkcji
+	 * @return średnia częstotliwość
+	 * @throws AnalysisInterruptedException
+	 *             wyjątek przerywający działanie metody
+	 */
+	private float avgerageFrequency(Zeros zeros) throws AnalysisInterruptedException {
+
+		float freq = 0F;
 
 		// gdy nieparzysta liczba zer
 		if ((zeros.nrOfZeros % 2) != 0) {
@@ -476,7 +1227,7 @@ public class Analysis {
 				// wymna�a si� przez cz�stotliwo�� pr�bkowania.
 				freq = (zeros.nrOfZeros - 1)
 						/ (float) (zeros.zeroPoints.get(zeros.nrOfZeros - 1) - (float) zeros.zeroPoints.get(0)) / 2.0F
-						* sampleRate;
+						* getAnalysisSampleRate();
 			else
 				// je�eli jest mniej ni� 3 zera to nie da si� wyliczy�
 				// cz�stotliwo�ci
@@ -490,14 +1241,14 @@ public class Analysis {
 				// to pomi� ostatnie zero w obliczaniu cz�stotliwo�ci
 				freq = (zeros.nrOfZeros - 2)
 						/ (float) (zeros.zeroPoints.get(zeros.nrOfZeros - 2) - zeros.zeroPoints.get(0)) / 2.0F
-						* sampleRate;
+						* getAnalysisSampleRate();
 			else if (zeros.nrOfZeros == 2)
 				// je�eli liczba zer jest r�wna dwa
 				// to powiel r�nic� odleg�o�ci drugiego zera i pierwszego zera,
 				// �eby mie� pe�en okres funkcji
 				freq = (zeros.nrOfZeros)
 						/ (float) (((zeros.zeroPoints.get(zeros.nrOfZeros - 1) - (zeros.zeroPoints.get(0))) * 2)) / 2.0F
-						* sampleRate;
+						* getAnalysisSampleRate();
 			else
 				freq = 0;
 
@@ -510,125 +1261,155 @@ public class Analysis {
 	} // koniec metody averageFrequency
 
 	/**
-	 * Znalezienie ekstrem�w w sygnale.
+	 * Znalezienie ekstremów i miejsc zerowych w sygnale w jednym przejściu.
+	 * Ekstrema i miejsca zerowe mają osobne automaty z histerezą delta, ale
+	 * oba są zasilane tą samą próbką, więc tablica jest czytana z pamięci
+	 * tylko raz. Wynik jest identyczny z wynikiem dwóch osobnych przejść.
+	 * 
+	 * Pierwszy i ostatni punkt sygnału są dodawane jednocześnie jako maksimum
+	 * i minimum (stany nieustalone funkcji).
 	 * 
+	 * @param samples
+	 *            sygnał
+	 * @param length
+	 *            liczba próbek sygnału
 	 * @param max
-	 *            lista liczb ca�kowitych okre�laj�ca po�o�enie maksim�w
+	 *            lista, do której są dodawane położenia maksimów, null - bez
+	 *            wyszukiwania ekstremów
 	 * @param min
-	 *            lista liczb ca�kowitych okre�laj�ca po�o�enie minim�w
-	 * @param samples
-	 *            sygna�, w kt�rym maj� by� znalezione ekstrema
+	 *            lista, do której są dodawane położenia minimów, null gdy max
+	 *            jest null
+	 * @param zeros
+	 *            obiekt, do którego zostaną zapisane miejsca zerowe (jego
+	 *            poprzednia zawartość jest usuwana), null - bez wyszukiwania
+	 *            miejsc zerowych
 	 */
-	private void extremum(ArrayList<Integer> max, ArrayList<Integer> min, float[] samples) {
+	private void scan(float[] samples, int length, IntList max, IntList min, Zeros zeros) {
 
-		// tendencja funkcji
-		Tendency tendency = Tendency.NO_TENDENCY;
+		final boolean extrema = max != null;
+		final boolean crossings = zeros != null;
+
+		if (crossings) {
+			zeros.nrOfZeros = 0;
+			zeros.zeroPoints.clear();
+		}
 
-		// pierwszy punkt traktowany jako stan nieustalony, jednocze�nie jako
+		// pierwszy punkt traktowany jako stan nieustalony, jednocześnie jako
 		// maksimum i jako minimum
-		max.add(0);
-		min.add(0);
+		if (extrema) {
+			max.add(0);
+			min.add(0);
+		}
 
-		// Sprawdzenie tendencji funkcji na pocz�tku sygna�u
+		// sprawdzenie tendencji funkcji na początku sygnału - pierwsza próbka
+		// poza przedziałem tolerancji wokół zera, wspólne dla obu automatów
+		Tendency tendency = Tendency.NO_TENDENCY;
 		int i;
-		for (i = 0; i < samples.length - 1 && tendency == Tendency.NO_TENDENCY; i++) {
+		for (i = 0; i < length - 1 && tendency == Tendency.NO_TENDENCY; i++) {
 			if (samples[i] > delta / 2)
 				tendency = Tendency.INCREASING;
 			else if (samples[i] < -delta / 2)
 				tendency = Tendency.DECREASING;
 		}
 
-		// je�eli funkcja jest p�aska to nie ma �adnej tendencji
-		// nale�y doda� ostatnie punkty jako ekstrema i wyj�� z funkcji
+		// jeżeli funkcja jest płaska to nie ma żadnej tendencji ani miejsc
+		// zerowych, ostatnie punkty są ekstremami
 		if (tendency == Tendency.NO_TENDENCY) {
-			min.add(samples.length - 1);
-			max.add(samples.length - 1);
+			if (extrema) {
+				min.add(length - 1);
+				max.add(length - 1);
+			}
 			return;
 		}
 
-		// tymczasowe maksimum i minimum, ich warto�� b�dzie si� zmienia� wraz z
-		// badaniem funkcji
+		// tendencja automatu miejsc zerowych
+		Tendency zeroTendency = tendency;
+
+		// tymczasowe maksimum i minimum, ich wartość będzie się zmieniać wraz
+		// z badaniem funkcji
 		int maxTemp = 0;
 		int minTemp = 0;
 
-		// Pierwsze przej�cie musi by� w innej p�tli, bo mo�e sie zdarzy� tak,
-		// �e dwa razy zapisze si� ta sama warto�� na osi x jako minimum albo
-		// maksimum.
-		// Je�eli przyk�adowo pierwsza warto�� w sygnale jest wystarczaj�co
-		// du�a,
-		// �eby funkcja przyj�a tendencj� rosn�c�,
-		// a nast�pna warto�� jest wystarczaj�co ma�a, �eby algorytm stwierdzi�
-		// ekstremum,
-		// to nie mo�e zapisa� tej wi�kszej warto�ci jako maksimum, poniewa�
-		// raz ju� zosta�o zapisane. (powsta� by problem w funkcji interpolate)
-		// Ta sytuacja wyst�puje tylko do momentu, w kt�rym dla tendencji
-		// rosn�cej zmieni�a si�
-		// warto�� tymczasowego maksimum, albo zmieni�a sie tendencja funkcji,
-		// a dla tendencji malej�cej zmieni�a si� warto�� minimum,
-		// albo zmieni�a si� tendencja funkcji.
-
-		// tendencja rosn�ca
-		for (; i < samples.length - 1; i++) {
-			if (tendency == Tendency.INCREASING) {
-				// je�eli nast�pna pr�bka jest wi�ksza to we� j� jako maksimum
-				if (samples[maxTemp] < samples[i]) {
-					maxTemp = i;
-					break;
-				}
-				// obecne maksimum jest wi�ksze o delt�
-				else if (samples[maxTemp] > (samples[i] + delta)) {
-					minTemp = i;
-					tendency = Tendency.DECREASING;
-					break;
-				}
-				// nie jest wi�kszy o delt� - szukaj dalej
-				else {
-					// maxTemp zostawiam bez zmian
-					minTemp = i;
-				}
-				// tendencja malej�ca
-			} else {
-				// je�eli nast�pna pr�bka jest mniejsza to we� j� jako minimum
-				if (samples[minTemp] > samples[i]) {
-					minTemp = i;
-					break;
+		// Na początku automat ekstremów jest w fazie ustalania: może się
+		// zdarzyć, że pierwsza wartość w sygnale jest wystarczająco duża,
+		// żeby funkcja przyjęła tendencję rosnącą, a następna wystarczająco
+		// mała, żeby stwierdzić ekstremum - wtedy to samo położenie zostałoby
+		// zapisane dwa razy (problem w funkcji interpolate). Faza kończy się,
+		// gdy zmieni się tymczasowe ekstremum albo tendencja, a próbka, na
+		// której się zakończyła, jest jeszcze raz badana w fazie zwykłej.
+		boolean settling = true;
+
+		for (; i < length - 1; i++) {
+			final float sample = samples[i];
+
+			// miejsce zerowe - próbka przekracza oś o wyznaczoną tolerancję
+			if (crossings) {
+				if (zeroTendency == Tendency.INCREASING) {
+					if (sample < -delta) {
+						zeros.nrOfZeros++;
+						zeros.zeroPoints.add(i);
+						zeroTendency = Tendency.DECREASING;
+					}
+				} else if (sample > delta) {
+					zeros.nrOfZeros++;
+					zeros.zeroPoints.add(i);
+					zeroTendency = Tendency.INCREASING;
 				}
-				// je�eli obecne minimum jest mniejsze o delt�
-				else if (samples[minTemp] < (samples[i] - delta)) {
-					maxTemp = i;
-					tendency = Tendency.INCREASING;
-					break;
+			}
+
+			if (!extrema)
+				continue;
+
+			// faza ustalania - bez zapisywania ekstremów
+			if (settling) {
+				if (tendency == Tendency.INCREASING) {
+					if (samples[maxTemp] < sample) {
+						maxTemp = i;
+						settling = false;
+					} else if (samples[maxTemp] > (sample + delta)) {
+						minTemp = i;
+						tendency = Tendency.DECREASING;
+						settling = false;
+					} else {
+						minTemp = i;
+					}
 				} else {
-					maxTemp = i;
+					if (samples[minTemp] > sample) {
+						minTemp = i;
+						settling = false;
+					} else if (samples[minTemp] < (sample - delta)) {
+						maxTemp = i;
+						tendency = Tendency.INCREASING;
+						settling = false;
+					} else {
+						maxTemp = i;
+					}
 				}
+				if (settling)
+					continue;
 			}
-		}
 
-		// dalsza cz�� odbywa si� ju� normalnie
-		for (; i < samples.length - 1; i++) {
-			// tendencja rosn�ca
+			// faza zwykła
 			if (tendency == Tendency.INCREASING) {
-				// je�eli nast�pna pr�bka jest wi�ksza to we� j� jako maksimum
-				if (samples[maxTemp] < samples[i])
+				// jeżeli następna próbka jest większa to weź ją jako maksimum
+				if (samples[maxTemp] < sample)
 					maxTemp = i;
-				// obecne maksimum jest wi�ksze o delt�
-				else if (samples[maxTemp] > (samples[i] + delta)) {
+				// obecne maksimum jest większe o deltę
+				else if (samples[maxTemp] > (sample + delta)) {
 					max.add(maxTemp);
 					minTemp = i;
 					tendency = Tendency.DECREASING;
 				}
-				// nie jest wi�ksze o delt� - szukaj dalej
+				// nie jest większe o deltę - szukaj dalej
 				else {
 					minTemp = i;
 				}
-				// tendencja malej�ca
 			} else {
-				// je�eli nast�pna pr�bka jest mniejsza od to we� j� jako
-				// minimum
-				if (samples[minTemp] > samples[i])
+				// jeżeli następna próbka jest mniejsza to weź ją jako minimum
+				if (samples[minTemp] > sample)
 					minTemp = i;
-				// je�eli obecne minimum jest mniejsze o delt�
-				else if (samples[minTemp] < (samples[i] - delta)) {
+				// jeżeli obecne minimum jest mniejsze o deltę
+				else if (samples[minTemp] < (sample - delta)) {
 					min.add(minTemp);
 					maxTemp = i;
 					tendency = Tendency.INCREASING;
@@ -636,107 +1417,42 @@ public class Analysis {
 					maxTemp = i;
 				}
 			}
-
 		}
 
-		// Dodaj ostatni� pr�bk�
-		min.add(samples.length - 1);
-		max.add(samples.length - 1);
-	} // koniec metody ekstremum
-
-	/**
-	 * Wyszukiwanie miejsc zerowych w sygnale
-	 * 
-	 * @param samples
-	 *            sygna�, w kt�rym maj� by� znalezione miejsca zerowe
-	 * @return Zeros - obiekt przechowuj�cy po�o�enie oraz liczb� warto�ci
-	 *         miejsc zerowych
-	 */
-	private Zeros findingZeros(float[] samples) {
-		Zeros zeros = new Zeros();
-
-		zeros.nrOfZeros = 0;
-		zeros.zeroPoints.clear();
-
-		Tendency tendency = Tendency.NO_TENDENCY;
-
-		int i;
-
-		// Je�eli funkcja nie ma jeszcze okre�lonej tendencji sprawdzaj czy
-		// warto�� kolejnej pr�bki
-		// nie przekroczy�a zadanego przedzia�u tolerancji od warto�ci zerowej
-		for (i = 0; i < (samples.length - 1) && (tendency == Tendency.NO_TENDENCY); i++) {
-			if (samples[i] > delta / 2)
-				tendency = Tendency.INCREASING;
-			if (samples[i] < -delta / 2)
-				tendency = Tendency.DECREASING;
-		}
-
-		// Je�eli funkcja ma ju� okre�lon� tendencj� kontynuuj wyszukiwanie, ale
-		// za miejsce zerowe we�
-		// miejsce w kt�rym pr�bka przekroczy o� o wyznaczon� tolerancj�
-		for (; i < samples.length - 1; i++) {
-			if (tendency == Tendency.INCREASING) {
-				if (samples[i] < -delta) {
-					zeros.nrOfZeros++;
-					zeros.zeroPoints.add(i);
-					tendency = Tendency.DECREASING;
-				}
-			} else if (tendency == Tendency.DECREASING) {
-				if (samples[i] > delta) {
-					zeros.nrOfZeros++;
-					zeros.zeroPoints.add(i);
-					tendency = Tendency.INCREASING;
-				}
-			}
+		// dodaj ostatnią próbkę
+		if (extrema) {
+			min.add(length - 1);
+			max.add(length - 1);
 		}
-		return zeros;
-	} // koniec metody findingZeros
+	} // koniec metody scan
 
 	/**
 	 * Okre�lenie cz�stotliwo�ci najbli�ej mikrodr�enia spo�r�d wszystkich
 	 * otrzymanych funkcji IMF.
 	 * 
-	 * @param imfMap
-	 *            mapa funkcji IMF
+	 * @param imfs
+	 *            funkcje IMF
 	 * @return klasa MicrotremorFunction przechowuj�ca funkcj� IMF najbli�sz�
-	 *         mikrodr�eniu
+	 *         mikrodr�eniu; bez próbek, jeżeli nie są one przechowywane
 	 */
-	private MicrotremorFunction findClosestFrequencyToMicrotremor(HashMap<Integer, IMFFunction> imfMap) {
-
-		// iterator mapy
-		Iterator<Map.Entry<Integer, IMFFunction>> iterator = imfMap.entrySet().iterator();
-		Map.Entry<Integer, IMFFunction> mapEntry;
+	private MicrotremorFunction findClosestFrequencyToMicrotremor(ImfSet imfs) {
 
-		// cz�stotliwo�� mikrodr�enia
-		float microtremorFrequency;
-		int id = 0;
-
-		// przyj�cie pierwszej funkcji jako mikrodr�enia
-		if (iterator.hasNext()) {
-			mapEntry = iterator.next();
-			microtremorFrequency = mapEntry.getValue().freq;
-			id = 0;
-		} else {
+		// znalezienie numeru funkcji IMF najbli�szej cz�stotliwo�ci
+		// mikrodr�enia
+		int id = imfs.findClosest();
+		if (id < 0) {
 			Debug.debug("nie ma zadnej czestotliwosci do analizowania w funkcji findClosestFrequencyToMicrottremor()");
 			return null;
 		}
-
-		while (iterator.hasNext()) {
-			mapEntry = iterator.next();
-
-			// znalezienie ID funkcji IMF najbli�szej cz�stotliwo�ci
-			// mikrodr�enia
-			if (Math.abs(10 - mapEntry.getValue().freq) < Math.abs(10 - microtremorFrequency)) {
-				microtremorFrequency = mapEntry.getValue().freq;
-				id = mapEntry.getKey();
-			}
-		}
+		float microtremorFrequency = imfs.getFrequency(id);
 
 		// zwr�� funkcj� odpowiadaj�c� mikrodr�eniu, jej cz�stotliwo�� oraz
 		// podj�t� decyzj�.
-		return new MicrotremorFunction((imfMap.get((Integer) id).samples), microtremorFrequency,
-				decision(microtremorFrequency));
+		float[] samples = imfs.hasSamples(id) ? imfs.getSamples(id) : null;
+		MicrotremorFunction microtremorFunction = new MicrotremorFunction(samples, microtremorFrequency,
+				decision(microtremorFrequency), deadlineReached);
+		microtremorFunction.siftCount = imfs.getSiftCount(id);
+		return microtremorFunction;
 	} // koniec metody findClosestFrequencyToMicrotremor
 
 	/**
@@ -748,7 +1464,7 @@ public class Analysis {
 	 */
 	private boolean decision(float frequency) {
 		// wykryto stres
-		if (frequency < 8 || frequency > 12)
+		if (frequency < STRESS_LOWER_FREQUENCY || frequency > STRESS_UPPER_FREQUENCY)
 			return true;
 		// brak stresu
 		else
@@ -0,0 +1,368 @@
+package vsa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa AnalysisCache
+ *
+ * Pamięć podręczna wyników analizy adresowana treścią. Kluczem jest skrót
+ * SHA-256 próbek sygnału i opisu ustawień analizy
+ * (Analysis.getParametersDescription()), więc ponowna analiza tego samego
+ * nagrania z tymi samymi ustawieniami zwraca zapamiętany wynik niezależnie
+ * od nazwy pliku.
+ *
+ * Wyniki są przechowywane w pamięci (ograniczona liczba wyników, usuwany
+ * jest najdawniej używany - LRU) i opcjonalnie w katalogu na dysku (jeden
+ * plik na wynik, bez limitu), skąd są wczytywane po ponownym uruchomieniu
+ * programu. Wyniki częściowe (po przekroczeniu limitu czasu) nie są
+ * zapamiętywane. Liczniki trafień i chybień są dostępne do diagnostyki.
+ *
+ * Obiekt może być używany przez wiele wątków.
+ *
+ ****************************************************************************
+ */
+class AnalysisCache {
+
+	/**
+	 * Domyślna liczba wyników w pamięci
+	 */
+	static final int DEFAULT_CAPACITY = 32;
+
+	/**
+	 * Właściwość systemowa z katalogiem pamięci podręcznej na dysku
+	 */
+	static final String DIRECTORY_PROPERTY = "vsa.analysisCache";
+
+	/**
+	 * Wersja algorytmów i formatu pliku - wchodzi do klucza, więc po zmianie
+	 * wyniki zapisane wcześniej na dysku nie są używane
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Znacznik początku pliku z wynikiem
+	 */
+	private static final int MAGIC = 0x56534143;
+
+	/**
+	 * Rozszerzenie plików z wynikami
+	 */
+	private static final String EXTENSION = ".vsa";
+
+	/**
+	 * Długość nagłówka pliku z wynikiem w bajtach: znacznik, wersja,
+	 * częstotliwość, decyzja, liczba iteracji i liczba próbek
+	 */
+	private static final int HEADER_LENGTH = 4 + 4 + 4 + 1 + 4 + 4;
+
+	/**
+	 * Liczba próbek przetwarzanych naraz przy wyliczaniu skrótu
+	 */
+	private static final int HASH_CHUNK = 8192;
+
+	/**
+	 * Wyniki w pamięci w kolejności użycia
+	 */
+	private final LinkedHashMap<String, MicrotremorFunction> memory;
+
+	/**
+	 * Katalog z wynikami na dysku albo null
+	 */
+	private final File directory;
+
+	/**
+	 * Liczniki trafień w pamięci, trafień na dysku i chybień
+	 */
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Konstruktor pamięci podręcznej bez zapisu na dysk.
+	 *
+	 * @param capacity
+	 *            liczba wyników w pamięci
+	 */
+	AnalysisCache(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param capacity
+	 *            liczba wyników w pamięci
+	 * @param directory
+	 *            katalog z wynikami na dysku albo null; jest tworzony, jeżeli
+	 *            nie istnieje
+	 */
+	AnalysisCache(final int capacity, File directory) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+		memory = new LinkedHashMap<String, MicrotremorFunction>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, MicrotremorFunction> eldest) {
+				return size() > capacity;
+			}
+		};
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			Debug.debug("Analysis cache directory unavailable: " + directory);
+			directory = null;
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * Pamięć podręczna programu: domyślna liczba wyników w pamięci i zapis na
+	 * dysk, jeżeli katalog podano we właściwości systemowej
+	 * DIRECTORY_PROPERTY.
+	 *
+	 * @return pamięć podręczna
+	 */
+	static AnalysisCache forApplication() {
+		String path = System.getProperty(DIRECTORY_PROPERTY);
+		return new AnalysisCache(DEFAULT_CAPACITY, (path == null || path.isEmpty()) ? null : new File(path));
+	}
+
+	/**
+	 * Klucz wyniku: skrót SHA-256 (zapis szesnastkowy) próbek sygnału i opisu
+	 * ustawień analizy.
+	 *
+	 * @param samples
+	 *            sygnał przed analizą
+	 * @param analysis
+	 *            analiza z docelowymi ustawieniami
+	 * @return klucz
+	 */
+	static String key(float[] samples, Analysis analysis) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// każda implementacja Javy musi udostępniać SHA-256
+			throw new IllegalStateException(e);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(4 * HASH_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+		for (int start = 0; start < samples.length; start += HASH_CHUNK) {
+			int end = Math.min(samples.length, start + HASH_CHUNK);
+			buffer.clear();
+			buffer.asFloatBuffer().put(samples, start, end - start);
+			digest.update(buffer.array(), 0, 4 * (end - start));
+		}
+		String parameters = "length=" + samples.length + ";version=" + VERSION + ";"
+				+ analysis.getParametersDescription();
+		digest.update(parameters.getBytes(Charset.forName("UTF-8")));
+
+		byte[] hash = digest.digest();
+		StringBuilder text = new StringBuilder(2 * hash.length);
+		for (byte b : hash)
+			text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return text.toString();
+	}
+
+	/**
+	 * Wyszukanie wyniku, najpierw w pamięci, potem na dysku. Wynik wczytany z
+	 * dysku jest dodawany do pamięci.
+	 *
+	 * @param key
+	 *            klucz wyniku (key())
+	 * @return kopia wyniku albo null
+	 */
+	MicrotremorFunction get(String key) {
+		MicrotremorFunction function;
+		synchronized (memory) {
+			function = memory.get(key);
+		}
+		if (function != null) {
+			hits.incrementAndGet();
+			return copy(function);
+		}
+
+		function = read(key);
+		if (function != null) {
+			diskHits.incrementAndGet();
+			synchronized (memory) {
+				memory.put(key, function);
+			}
+			return copy(function);
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Zapamiętanie wyniku. Wyniki częściowe są pomijane.
+	 *
+	 * @param key
+	 *            klucz wyniku (key())
+	 * @param function
+	 *            wynik analizy
+	 */
+	void put(String key, MicrotremorFunction function) {
+		if (function == null || function.isPartial())
+			return;
+		MicrotremorFunction stored = copy(function);
+		synchronized (memory) {
+			memory.put(key, stored);
+		}
+		write(key, stored);
+	}
+
+	/**
+	 * Usunięcie wyników z pamięci (pliki na dysku pozostają) i wyzerowanie
+	 * liczników.
+	 */
+	void clear() {
+		synchronized (memory) {
+			memory.clear();
+		}
+		hits.set(0);
+		diskHits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Zwraca liczbę wyników w pamięci.
+	 */
+	int size() {
+		synchronized (memory) {
+			return memory.size();
+		}
+	}
+
+	/**
+	 * Zwraca liczbę trafień w pamięci.
+	 */
+	long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Zwraca liczbę trafień na dysku.
+	 */
+	long getDiskHits() {
+		return diskHits.get();
+	}
+
+	/**
+	 * Zwraca liczbę chybień.
+	 */
+	long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "hits " + hits.get() + ", disk hits " + diskHits.get() + ", misses " + misses.get() + ", "
+				+ size() + " in memory" + ((directory != null) ? ", directory " + directory : "");
+	}
+
+	/**
+	 * Kopia wyniku, żeby zmiany próbek przez wywołującego nie zmieniały
+	 * zapamiętanego wyniku.
+	 */
+	private static MicrotremorFunction copy(MicrotremorFunction function) {
+		float[] samples = (function.samples != null) ? function.samples.clone() : null;
+		MicrotremorFunction copy = new MicrotremorFunction(samples, function.freq, function.getDecision());
+		copy.siftCount = function.siftCount;
+		return copy;
+	}
+
+	/**
+	 * Wczytanie wyniku z dysku. Uszkodzony plik jest usuwany.
+	 *
+	 * @return wynik albo null
+	 */
+	private MicrotremorFunction read(String key) {
+		if (directory == null)
+			return null;
+		File file = new File(directory, key + EXTENSION);
+		if (!file.isFile())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Unknown cache file format");
+			float freq = in.readFloat();
+			boolean decision = in.readBoolean();
+			int siftCount = in.readInt();
+			int length = in.readInt();
+			// liczba próbek z nagłówka musi zgadzać się z długością pliku,
+			// żeby uszkodzony plik nie wymusił alokacji ogromnej tablicy
+			if (length < -1 || length > (file.length() - HEADER_LENGTH) / 4)
+				throw new IOException("Invalid sample count: " + length);
+			float[] samples = null;
+			if (length >= 0) {
+				samples = new float[length];
+				for (int i = 0; i < length; i++)
+					samples[i] = in.readFloat();
+			}
+			MicrotremorFunction function = new MicrotremorFunction(samples, freq, decision);
+			function.siftCount = siftCount;
+			return function;
+		} catch (IOException e) {
+			Debug.debug("Invalid analysis cache file " + file + ": " + e.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Zapis wyniku na dysk - najpierw do pliku tymczasowego, który jest potem
+	 * przemianowywany, żeby inny wątek albo program nie wczytał
+	 * niekompletnego pliku.
+	 */
+	private void write(String key, MicrotremorFunction function) {
+		if (directory == null)
+			return;
+		File file = new File(directory, key + EXTENSION);
+		File temporary = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeFloat(function.freq);
+			out.writeBoolean(function.getDecision());
+			out.writeInt(function.siftCount);
+			if (function.samples == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(function.samples.length);
+				for (float sample : function.samples)
+					out.writeFloat(sample);
+			}
+		} catch (IOException e) {
+			Debug.debug("Unable to write analysis cache file " + temporary + ": " + e.getMessage());
+			temporary.delete();
+			return;
+		}
+
+		if (!temporary.renameTo(file)) {
+			// w systemach, w których zmiana nazwy nie zastępuje pliku
+			file.delete();
+			if (!temporary.renameTo(file))
+				temporary.delete();
+		}
+	}
+}
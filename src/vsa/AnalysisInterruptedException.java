@@ -0,0 +1,19 @@
+package vsa;
+
+import access.mypackage.offdebug.Debug;
+
+/*****************************************************************************
+ * Klasa AnalysisInterruptedException
+ * 
+ * Wyj�tek stworzony do obs�ugi przerwania analizy. Dziedziczy po klasie
+ * Exception.
+ * 
+ * ***************************************************************************
+ */
+@SuppressWarnings("serial")
+class AnalysisInterruptedException extends Exception {
+
+	public AnalysisInterruptedException() {
+		Debug.debug("AnalysisInterruptedException");
+	}
+}
@@ -0,0 +1,44 @@
+package vsa;
+
+import java.util.concurrent.ForkJoinPool;
+
+/****************************************************************************
+ * Klasa AnalysisThreadPool
+ *
+ * Wspólna pula wątków dla obliczeń wykonywanych równolegle podczas analizy
+ * (filtrowanie, dekompozycja EMD). Pula jest tworzona przy pierwszym użyciu,
+ * a liczba wątków odpowiada liczbie dostępnych procesorów. Wątki puli są
+ * wątkami typu daemon, więc nie blokują zakończenia programu.
+ *
+ ****************************************************************************
+ */
+final class AnalysisThreadPool {
+
+	/**
+	 * Leniwa inicjalizacja puli
+	 */
+	private static class Holder {
+		static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	private AnalysisThreadPool() {
+	}
+
+	/**
+	 * Zwraca wspólną pulę wątków.
+	 *
+	 * @return pula wątków
+	 */
+	static ForkJoinPool get() {
+		return Holder.pool;
+	}
+
+	/**
+	 * Zwraca liczbę wątków puli.
+	 *
+	 * @return liczba wątków, które mogą wykonywać obliczenia równolegle
+	 */
+	static int getParallelism() {
+		return get().getParallelism();
+	}
+}
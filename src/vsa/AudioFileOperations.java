@@ -121,6 +121,22 @@ public class AudioFileOperations {
 	 * @return tablica float�w reprezentuj�ca sygna� audio
 	 */
 	public static float[] byteArrayIntoFloatArray(byte[] bytesArray) {
+		return byteArrayIntoFloatArray(bytesArray, 0, bytesArray.length);
+	}
+
+	/**
+	 * Konwersja fragmentu tablicy bajtów na tablicę floatów z zakresu -1 do
+	 * 1, np. kolejnego bufora odczytanego podczas nagrywania.
+	 * 
+	 * @param bytesArray
+	 *            tablica bajtów reprezentująca sygnał audio
+	 * @param offset
+	 *            indeks pierwszego bajtu
+	 * @param length
+	 *            liczba bajtów, wielokrotność rozmiaru próbki
+	 * @return tablica floatów reprezentująca sygnał audio
+	 */
+	public static float[] byteArrayIntoFloatArray(byte[] bytesArray, int offset, int length) {
 
 		// rozmiar sampla w bitach
 		final int bitsPerSample = AudioFileOperations.getAudioFormat().getSampleSizeInBits();
@@ -128,13 +144,12 @@ public class AudioFileOperations {
 		// ka�dy bajt ma 8 bit�w
 		final int bytesPerSample = bitsPerSample / 8;
 
-		int numOfBytes = bytesArray.length;
-		int numOfSamples = numOfBytes / bytesPerSample;
+		int numOfSamples = length / bytesPerSample;
 		long[] transfer = new long[numOfSamples];
 		float[] samples = new float[numOfSamples];
 
 		// Dla ka�dego sampla
-		for (int i = 0, k = 0, b; i < numOfBytes; i += bytesPerSample, k++) {
+		for (int i = offset, k = 0, b; k < numOfSamples; i += bytesPerSample, k++) {
 			transfer[k] = 0L;
 			// Dla ka�dego bajtu w samplu
 			// Poniewa� kodowanie jest w little-endian to trzeba drugi bajt
@@ -169,13 +184,9 @@ public class AudioFileOperations {
 	 * Normalizacja do najwi�kszej pr�bki
 	 */
 	public static void normalized(float[] samples) {
-		float maxValue = 0;
-		for (int i = 0; i < samples.length; i++)
-			if (maxValue < Math.abs(samples[i]))
-				maxValue = Math.abs(samples[i]);
+		float maxValue = DspKernels.maxAbs(samples, samples.length);
 
-		for (int i = 0; i < samples.length; i++)
-			samples[i] = samples[i] / maxValue;
+		DspKernels.divide(samples, samples.length, maxValue);
 	}
 
 	/**
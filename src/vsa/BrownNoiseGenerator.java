@@ -13,7 +13,7 @@ import java.util.Random;
  * <p>
  * Reference: <a href="https://en.wikipedia.org/wiki/Brown_noise">Wikipedia</a>
  **/
-public class BrownNoiseGenerator {
+public class BrownNoiseGenerator implements NoiseGenerator {
 
 	private double minValue;
 	private double maxValue;
@@ -62,6 +62,32 @@ public class BrownNoiseGenerator {
 	 *            parameter is zero, the high pass filter is disabled.
 	 */
 	public BrownNoiseGenerator(double minValue, double maxValue, double slope, double hpFilter) {
+		this(minValue, maxValue, slope, hpFilter, new Random());
+	}
+
+	/**
+	 * Creates a brown noise generator with a reproducible output sequence.
+	 * Generators created with different seeds produce independent noise
+	 * streams, e.g. for the trials of ensemble EMD.
+	 *
+	 * @param minValue
+	 *            Minimum output value.
+	 * @param maxValue
+	 *            Maximum output value.
+	 * @param slope
+	 *            Maximum slope of the output signal, see
+	 *            {@link #BrownNoiseGenerator(double, double, double, double)}.
+	 * @param hpFilter
+	 *            High pass filter factor, see
+	 *            {@link #BrownNoiseGenerator(double, double, double, double)}.
+	 * @param seed
+	 *            Seed of the underlying white noise generator.
+	 */
+	public BrownNoiseGenerator(double minValue, double maxValue, double slope, double hpFilter, long seed) {
+		this(minValue, maxValue, slope, hpFilter, new Random(seed));
+	}
+
+	private BrownNoiseGenerator(double minValue, double maxValue, double slope, double hpFilter, Random random) {
 		this.minValue = minValue;
 		this.maxValue = maxValue;
 		this.slope = slope;
@@ -80,12 +106,13 @@ public class BrownNoiseGenerator {
 		}
 		centerValue = (minValue + maxValue) / 2;
 		currentValue = centerValue;
-		random = new Random();
+		this.random = random;
 	}
 
 	/**
 	 * Returns the next output value of the noise generator.
 	 */
+	@Override
 	public double getNext() {
 		double whiteNoise = (random.nextFloat() * 2 - 1) * slope;
 		// We use Random.nextFloat() because it's faster than nextDouble() and
@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 import vsa.Analysis.AnalysisState;
 import access.mypackage.offdebug.Debug;
 
@@ -43,6 +44,13 @@ public class ButtonListener {
 	 */
 	private Player player;
 	private Analysis analyzer;
+	private LiveAnalysis liveAnalysis;
+
+	/**
+	 * Results of previous analyses, shared by all analyses started from this
+	 * listener.
+	 */
+	private final AnalysisCache analysisCache = AnalysisCache.forApplication();
 	private AnalysisDataWindow analysisDataWindow;
 
 	private DisplayPanel displayPanelWaveform, displayPanelAnalysis;
@@ -163,6 +171,7 @@ public class ButtonListener {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			Debug.debug("stop");
+			stopLiveAnalysis();
 			if (player.getPlayState() == PlayState.RECORD) {
 				player.capture.stop();
 				buttons.textFieldFileName.setText("Recording");
@@ -190,6 +199,7 @@ public class ButtonListener {
 			Debug.debug("rec");
 			fieldsAnalysisDefaultState();
 			displayPanelWaveform.reset();
+			startLiveAnalysis();
 			player.capture.start();
 			buttonsStateRecordFile();
 		}
@@ -260,8 +270,15 @@ public class ButtonListener {
 			analyzer = new Analysis();
 			MicrotremorFunction microtremorFunction = null;
 			try {
-				microtremorFunction = analyzer.startAnalysis(samplesToAnalysis);
-				new Thread(new PaintWaveformThread(displayPanelAnalysis, microtremorFunction.samples)).start();
+				String key = AnalysisCache.key(samplesToAnalysis, analyzer);
+				microtremorFunction = analysisCache.get(key);
+				if (microtremorFunction == null) {
+					microtremorFunction = analyzer.startAnalysis(samplesToAnalysis);
+					analysisCache.put(key, microtremorFunction);
+				}
+				Debug.debug("analysis cache: " + analysisCache);
+				if (microtremorFunction.samples != null)
+					new Thread(new PaintWaveformThread(displayPanelAnalysis, microtremorFunction.samples)).start();
 				setFrequencyInTheTextField(microtremorFunction.freq);
 				setDecisionInTheTextField(microtremorFunction.getDecision());
 				analysisDataWindow.addAnalysisData(fileName, getFrequencyFromTheTextField(),
@@ -277,6 +294,29 @@ public class ButtonListener {
 
 	}
 
+	/**
+	 * Listener of live analysis results. It shows frequency and decision of
+	 * the last analysed window while recording. Results arrive on the
+	 * LiveAnalysis worker thread, so the text fields are updated on the event
+	 * dispatch thread.
+	 */
+	class LiveAnalysisListener implements LiveAnalysis.Listener {
+
+		@Override
+		public void microtremorUpdated(MicrotremorFunction function, float time) {
+			final float freq = function.freq;
+			final boolean decision = function.getDecision();
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					setFrequencyInTheTextField(freq);
+					setDecisionInTheTextField(decision);
+				}
+			});
+		}
+
+	}
+
 	/**
 	 * Klasa implementujaca interfejs Runnable s�u��cy do narysowania funkcji
 	 */
@@ -300,6 +340,26 @@ public class ButtonListener {
 
 	}
 
+	/**
+	 * Start live analysis of captured audio.
+	 */
+	private void startLiveAnalysis() {
+		liveAnalysis = new LiveAnalysis(new LiveAnalysisListener());
+		player.setCaptureListener(liveAnalysis);
+		liveAnalysis.start();
+	}
+
+	/**
+	 * Stop live analysis, if it is running.
+	 */
+	private void stopLiveAnalysis() {
+		if (liveAnalysis != null) {
+			player.setCaptureListener(null);
+			liveAnalysis.stop();
+			liveAnalysis = null;
+		}
+	}
+
 	/*****************************************************************************
 	 * 
 	 * Zmiany stan�w przycisk�w i p�l
@@ -710,6 +770,8 @@ public class ButtonListener {
 			}
 		}
 
+		stopLiveAnalysis();
+
 		if (analyzer != null) {
 			if (analyzer.getAnalysisState() == AnalysisState.ANALYSING)
 				analyzer.setAnalysisState(AnalysisState.INTERRUPTING);
@@ -0,0 +1,16 @@
+package vsa;
+
+/*************************************************************************
+ * Interfejs CancellationCheck
+ * 
+ * Sprawdzenie, czy obliczenia należy przerwać. Wywoływany co pewną liczbę
+ * iteracji w długich pętlach, np. przy wyliczaniu funkcji sklejanych.
+ * 
+ *************************************************************************
+ */
+interface CancellationCheck {
+	/**
+	 * @return true, jeżeli obliczenia należy przerwać
+	 */
+	boolean isCancelled();
+}
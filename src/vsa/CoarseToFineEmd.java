@@ -0,0 +1,139 @@
+package vsa;
+
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa CoarseToFineEmd
+ *
+ * Dekompozycja EMD ograniczona do funkcji IMF potrzebnych do znalezienia
+ * mikrodrżenia. Najpierw algorytm EMD jest wykonywany na kopii sygnału po
+ * dodatkowej, silnej decymacji (DecimationCascade) - taka dekompozycja jest
+ * wielokrotnie tańsza i wskazuje funkcję IMF najbliższą częstotliwości
+ * mikrodrżenia oraz jej częstotliwość. Następnie funkcje IMF są wyznaczane
+ * po jednej z sygnału w pełnej rozdzielczości, a dekompozycja kończy się
+ * zaraz po funkcji o częstotliwości niższej niż wskazana przez przebieg
+ * zgrubny (i niż częstotliwość mikrodrżenia). Kolejne funkcje mają coraz
+ * niższe częstotliwości, więc nie mogą być bliższe mikrodrżeniu i ich
+ * przesiewanie - zwykle najdłuższe - jest pomijane.
+ *
+ * Numery funkcji IMF w obu przebiegach nie muszą się zgadzać: sygnał po
+ * decymacji nie zawiera najwyższych częstotliwości, więc ma mniej funkcji
+ * IMF. Dlatego przebieg dokładny jest ograniczany częstotliwością, a nie
+ * numerem funkcji. Wyznaczone funkcje są identyczne z pierwszymi funkcjami
+ * zwykłego algorytmu EMD.
+ *
+ ****************************************************************************
+ */
+class CoarseToFineEmd {
+
+	/**
+	 * Domyślny współczynnik dodatkowej decymacji w przebiegu zgrubnym
+	 */
+	static final int DEFAULT_COARSE_FACTOR = 8;
+
+	/**
+	 * Margines częstotliwości końca przebiegu dokładnego, pokrywający różnice
+	 * częstotliwości funkcji IMF wyznaczonych w obu rozdzielczościach
+	 */
+	static final float FREQUENCY_TOLERANCE = 0.15F;
+
+	/**
+	 * Analiza, której algorytm EMD jest wykonywany w obu przebiegach
+	 */
+	private final Analysis analysis;
+
+	/**
+	 * Współczynnik dodatkowej decymacji w przebiegu zgrubnym
+	 */
+	private final int coarseFactor;
+
+	/**
+	 * Konstruktor z domyślnym współczynnikiem decymacji.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 */
+	CoarseToFineEmd(Analysis analysis) {
+		this(analysis, DEFAULT_COARSE_FACTOR);
+	}
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 * @param coarseFactor
+	 *            współczynnik dodatkowej decymacji w przebiegu zgrubnym
+	 */
+	CoarseToFineEmd(Analysis analysis, int coarseFactor) {
+		if (coarseFactor < 2)
+			throw new IllegalArgumentException("Invalid coarse decimation factor: " + coarseFactor);
+		this.analysis = analysis;
+		this.coarseFactor = coarseFactor;
+	}
+
+	/**
+	 * Dekompozycja sygnału. Jeżeli przebieg zgrubny nie da żadnej funkcji IMF
+	 * (np. sygnał jest zbyt krótki), wykonywany jest zwykły algorytm EMD.
+	 *
+	 * @param samples
+	 *            sygnał po filtracji i decymacji, po zakończeniu - residuum
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane kolejne funkcje
+	 *            IMF
+	 * @param workspace
+	 *            bufory robocze algorytmu EMD
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	void decompose(float[] samples, ImfSet imfs, EmdWorkspace workspace) throws AnalysisInterruptedException {
+		float coarseFrequency = coarseFrequency(samples, workspace);
+		if (coarseFrequency <= 0) {
+			analysis.emd(samples, imfs, workspace);
+			return;
+		}
+
+		// przebieg dokładny - funkcje IMF wyznaczane po jednej aż do
+		// pierwszej poniżej częstotliwości granicznej
+		float stopFrequency = Math.min(coarseFrequency, Analysis.MICROTREMOR_FREQUENCY) * (1F - FREQUENCY_TOLERANCE);
+		while (!analysis.isDeadlineReached()) {
+			int count = imfs.size();
+			analysis.emd(samples, imfs, workspace, count + 1);
+			if (imfs.size() == count || imfs.getFrequency(count) < stopFrequency)
+				break;
+		}
+
+		Debug.debug("Coarse-to-fine EMD: coarse " + coarseFrequency + " Hz, " + imfs.size() + " IMFs refined");
+	}
+
+	/**
+	 * Przebieg zgrubny: dekompozycja sygnału po dodatkowej decymacji i wybór
+	 * funkcji IMF najbliższej częstotliwości mikrodrżenia.
+	 *
+	 * @return częstotliwość wybranej funkcji albo 0, jeżeli nie wyznaczono
+	 *         żadnej funkcji
+	 */
+	private float coarseFrequency(float[] samples, EmdWorkspace workspace) throws AnalysisInterruptedException {
+		float rate = analysis.getAnalysisSampleRate();
+		float[] coarse = new DecimationCascade(rate, rate / coarseFactor).process(samples);
+		if (coarse == null || coarse.length < 6)
+			return 0;
+
+		// w przebiegu zgrubnym potrzebne są tylko częstotliwości
+		ImfSet coarseImfs = new ImfSet(coarse.length, Analysis.ImfRetention.FREQUENCIES_ONLY);
+		analysis.emd(coarse, coarseImfs, workspace);
+
+		// częstotliwości są wyliczane dla częstotliwości próbkowania analizy,
+		// więc dla sygnału po decymacji są zawyżone coarseFactor razy
+		float closest = 0;
+		for (int k = 0; k < coarseImfs.size(); k++) {
+			float freq = coarseImfs.getFrequency(k) / coarseFactor;
+			if (freq >= 4F && (closest == 0 || Math.abs(Analysis.MICROTREMOR_FREQUENCY - freq) < Math
+					.abs(Analysis.MICROTREMOR_FREQUENCY - closest)))
+				closest = freq;
+		}
+		return closest;
+	}
+}
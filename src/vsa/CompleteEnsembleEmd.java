@@ -0,0 +1,344 @@
+package vsa;
+
+import java.util.concurrent.RecursiveAction;
+
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa CompleteEnsembleEmd
+ *
+ * Zespołowy algorytm EMD z adaptacyjnym szumem (CEEMDAN). W odróżnieniu od
+ * EEMD funkcje IMF są wyznaczane po kolei: w k-tym etapie do bieżącego
+ * residuum jest dodawana (k-1)-ta funkcja IMF każdej realizacji szumu,
+ * z każdej sumy jest wyznaczana tylko pierwsza funkcja IMF, a ich średnia
+ * staje się k-tą funkcją IMF sygnału i jest odejmowana od residuum. Suma
+ * funkcji IMF i residuum odtwarza sygnał dokładnie, a kolejne funkcje są
+ * stabilniejsze niż w EEMD.
+ *
+ * Kolejne etapy zależą od siebie, więc równolegle są wykonywane realizacje
+ * szumu w ramach jednego etapu (zadania w puli AnalysisThreadPool, tak jak
+ * próby w EnsembleEmd). Dekompozycje realizacji szumu są wspólne dla
+ * wszystkich etapów: każda realizacja przechowuje residuum swojej
+ * dekompozycji, a w kolejnym etapie wyznaczana jest z niego tylko następna
+ * funkcja IMF szumu, w tym samym zadaniu, które przesiewa sygnał z tą
+ * funkcją. Każda funkcja IMF szumu jest więc liczona raz i tylko tak głęboko,
+ * jak daleko sięga dekompozycja sygnału. Kosztem jest pamięć na residua szumu
+ * (liczba realizacji razy długość sygnału).
+ *
+ ****************************************************************************
+ */
+class CompleteEnsembleEmd {
+
+	/**
+	 * Analiza, której algorytm EMD jest wykonywany w kolejnych etapach
+	 */
+	private final Analysis analysis;
+
+	/**
+	 * Liczba realizacji szumu
+	 */
+	private final int trials;
+
+	/**
+	 * Odchylenie standardowe szumu względem odchylenia standardowego
+	 * residuum w danym etapie
+	 */
+	private final float noiseAmplitude;
+
+	/**
+	 * Rodzaj szumu
+	 */
+	private final Analysis.NoiseType noiseType;
+
+	/**
+	 * Ziarno generatorów szumu
+	 */
+	private final long seed;
+
+	/**
+	 * Residua dekompozycji kolejnych realizacji szumu, null przed pierwszym
+	 * etapem albo po wyczerpaniu funkcji IMF danej realizacji
+	 */
+	private float[][] noiseResidues;
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 * @param trials
+	 *            liczba realizacji szumu
+	 * @param noiseAmplitude
+	 *            odchylenie standardowe szumu względem odchylenia
+	 *            standardowego residuum
+	 * @param noiseType
+	 *            rodzaj szumu
+	 * @param seed
+	 *            ziarno generatorów szumu
+	 */
+	CompleteEnsembleEmd(Analysis analysis, int trials, float noiseAmplitude, Analysis.NoiseType noiseType,
+			long seed) {
+		if (trials < 1)
+			throw new IllegalArgumentException("Invalid number of trials: " + trials);
+		if (noiseAmplitude <= 0)
+			throw new IllegalArgumentException("Invalid noise amplitude: " + noiseAmplitude);
+		this.analysis = analysis;
+		this.trials = trials;
+		this.noiseAmplitude = noiseAmplitude;
+		this.noiseType = noiseType;
+		this.seed = seed;
+	}
+
+	/**
+	 * Dekompozycja sygnału na funkcje IMF. Dekompozycja kończy się, gdy w
+	 * żadnej realizacji nie udało się wyznaczyć funkcji IMF, gdy
+	 * częstotliwość uśrednionej funkcji spadnie poniżej 4 Hz (tak jak w
+	 * algorytmie EMD) albo po przekroczeniu limitu czasu analizy.
+	 *
+	 * Po przekroczeniu limitu czasu nowe realizacje nie są rozpoczynane, a
+	 * realizacje przerwane w trakcie przesiewania są pomijane - funkcja IMF
+	 * etapu jest średnią z realizacji zakończonych przed limitem, a etap bez
+	 * zakończonej realizacji kończy dekompozycję. Wynik jest wtedy
+	 * częściowy (MicrotremorFunction.isPartial()).
+	 *
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane kolejne funkcje
+	 *            IMF
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	void decompose(float[] samples, ImfSet imfs) throws AnalysisInterruptedException {
+		final int length = samples.length;
+		float[] residuum = samples.clone();
+		noiseResidues = new float[trials][];
+
+		Zeros zeros = new Zeros();
+		int grain = Math.max(1, trials / (4 * AnalysisThreadPool.getParallelism()));
+
+		for (int stage = 0; !analysis.isDeadlineReached(); stage++) {
+			float deviation = noiseAmplitude * EnsembleEmd.standardDeviation(residuum, length);
+			StageTask task = new StageTask(residuum, deviation, stage, 0, trials, grain);
+			AnalysisThreadPool.get().invoke(task);
+			if (task.interrupted != null)
+				throw task.interrupted;
+
+			StageSum sum = task.result;
+			if (sum.count == 0)
+				break;
+
+			// średnia pierwszych funkcji IMF z zakończonych realizacji,
+			// realizacja bez funkcji IMF wnosi zero
+			float[] imf = sum.samples;
+			for (int i = 0; i < length; i++)
+				imf[i] /= sum.completed;
+
+			float freq = analysis.avgerageFrequency(imf, length, zeros);
+			if (freq < 4F)
+				break;
+
+			imfs.add(imf, freq, sum.siftCount);
+			for (int i = 0; i < length; i++)
+				residuum[i] -= imf[i];
+		}
+
+		Debug.debug("CEEMDAN: " + trials + " trials, " + noiseType + " noise, " + imfs.size() + " IMFs"
+				+ (analysis.isDeadlineReached() ? " (partial)" : ""));
+		noiseResidues = null;
+	}
+
+	/****************************************************************
+	 * Klasa StageSum
+	 *
+	 * Suma pierwszych funkcji IMF z realizacji jednego etapu
+	 *
+	 ****************************************************************
+	 */
+	private static class StageSum {
+		/**
+		 * Suma funkcji IMF, null jeżeli żadna realizacja nie dała funkcji
+		 */
+		float[] samples;
+		/**
+		 * Liczba realizacji, w których wyznaczono funkcję IMF
+		 */
+		int count;
+		/**
+		 * Liczba zakończonych realizacji, także tych bez funkcji IMF
+		 */
+		int completed;
+		/**
+		 * Suma liczby iteracji przesiewania
+		 */
+		int siftCount;
+
+		/**
+		 * Dodanie zakończonej realizacji: jej pierwszej funkcji IMF albo
+		 * zera, jeżeli zbiór imfs jest pusty.
+		 */
+		void add(ImfSet imfs) {
+			completed++;
+			if (imfs.isEmpty())
+				return;
+			float[] data = imfs.getData();
+			if (samples == null) {
+				samples = imfs.getSamples(0);
+			} else {
+				for (int i = 0; i < samples.length; i++)
+					samples[i] += data[i];
+			}
+			count++;
+			siftCount += imfs.getSiftCount(0);
+		}
+
+		/**
+		 * Dołączenie sumy z innego zadania.
+		 *
+		 * @return ta suma
+		 */
+		StageSum merge(StageSum other) {
+			if (samples == null)
+				samples = other.samples;
+			else if (other.samples != null)
+				add(samples, other.samples);
+			count += other.count;
+			completed += other.completed;
+			siftCount += other.siftCount;
+			return this;
+		}
+
+		private static void add(float[] sum, float[] samples) {
+			for (int i = 0; i < sum.length; i++)
+				sum[i] += samples[i];
+		}
+	}
+
+	/****************************************************************
+	 * Klasa StageTask
+	 *
+	 * Wykonanie jednego etapu dla realizacji szumu o numerach od from do
+	 * to - 1
+	 *
+	 ****************************************************************
+	 */
+	@SuppressWarnings("serial")
+	private class StageTask extends RecursiveAction {
+		private final float[] residuum;
+		private final float deviation;
+		private final int stage;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		/**
+		 * Suma pierwszych funkcji IMF z realizacji zakończonych przed upływem
+		 * limitu czasu
+		 */
+		StageSum result;
+
+		/**
+		 * Wyjątek przerwania analizy zgłoszony w trakcie dekompozycji
+		 */
+		AnalysisInterruptedException interrupted;
+
+		StageTask(float[] residuum, float deviation, int stage, int from, int to, int grain) {
+			this.residuum = residuum;
+			this.deviation = deviation;
+			this.stage = stage;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				StageTask left = new StageTask(residuum, deviation, stage, from, middle, grain);
+				StageTask right = new StageTask(residuum, deviation, stage, middle, to, grain);
+				invokeAll(left, right);
+				interrupted = (left.interrupted != null) ? left.interrupted : right.interrupted;
+				if (interrupted == null)
+					result = left.result.merge(right.result);
+				return;
+			}
+
+			StageSum sum = new StageSum();
+			EmdWorkspace workspace = EmdWorkspace.forCurrentThread();
+			ImfSet imfs = new ImfSet(residuum.length, Analysis.ImfRetention.ALL, 1);
+			try {
+				// po upływie limitu czasu nowe realizacje nie są rozpoczynane,
+				// a realizacja przerwana w trakcie przesiewania jest pomijana
+				for (int trial = from; trial < to && !analysis.isDeadlineReached(); trial++) {
+					imfs.clear();
+					firstImf(trial, workspace, imfs);
+					if (!analysis.isDeadlineReached())
+						sum.add(imfs);
+				}
+			} catch (AnalysisInterruptedException e) {
+				interrupted = e;
+				return;
+			}
+			result = sum;
+		}
+
+		/**
+		 * Pierwsza funkcja IMF residuum z dodaną składową jednej realizacji
+		 * szumu: w pierwszym etapie samym szumem, w k-tym etapie k-tą funkcją
+		 * IMF szumu, wyznaczaną z zapamiętanego residuum dekompozycji szumu.
+		 * Funkcja jest dodawana do pustego zbioru imfs, który pozostaje
+		 * pusty, jeżeli nie udało się jej wyznaczyć.
+		 */
+		private void firstImf(int trial, EmdWorkspace workspace, ImfSet imfs) throws AnalysisInterruptedException {
+			final int length = residuum.length;
+			float[] term;
+			if (stage == 0) {
+				term = EnsembleEmd.noise(noiseType, length, 1F, EnsembleEmd.trialSeed(seed, trial));
+				noiseResidues[trial] = term.clone();
+			} else {
+				term = nextNoiseImf(trial, workspace, imfs);
+			}
+
+			float[] noisy = residuum.clone();
+			if (term != null) {
+				float scale = deviation / Math.max(EnsembleEmd.standardDeviation(term, length), Float.MIN_NORMAL);
+				for (int i = 0; i < length; i++)
+					noisy[i] += scale * term[i];
+			}
+
+			try {
+				analysis.emd(noisy, imfs, workspace, 1);
+			} catch (AnalysisInterruptedException e) {
+				if (analysis.getAnalysisState() == Analysis.AnalysisState.INTERRUPTING)
+					throw e;
+				// za mało próbek - brak funkcji IMF w tej realizacji
+			}
+		}
+
+		/**
+		 * Kolejna funkcja IMF realizacji szumu. Residuum dekompozycji szumu
+		 * jest modyfikowane w miejscu, a po wyczerpaniu funkcji IMF
+		 * realizacja dalej nie wnosi szumu. Zbiór imfs służy tylko do
+		 * wyznaczenia funkcji i po powrocie jest pusty.
+		 *
+		 * @return funkcja IMF szumu albo null
+		 */
+		private float[] nextNoiseImf(int trial, EmdWorkspace workspace, ImfSet imfs)
+				throws AnalysisInterruptedException {
+			float[] noiseResidue = noiseResidues[trial];
+			if (noiseResidue == null)
+				return null;
+
+			analysis.emd(noiseResidue, imfs, workspace, 1);
+			if (imfs.isEmpty()) {
+				noiseResidues[trial] = null;
+				return null;
+			}
+			float[] imf = imfs.getSamples(0);
+			imfs.clear();
+			return imf;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa CubicSpline
+ *
+ * Naturalne funkcje sklejane trzeciego rzędu wyspecjalizowane dla tablic
+ * float. Węzłami są indeksy próbek sygnału (rosnące liczby całkowite), a
+ * wartościami w węzłach - wartości tych próbek. Układ trójdiagonalny jest
+ * rozwiązywany algorytmem Thomasa w buforach obiektu, a obwiednia jest
+ * wyliczana przechodząc kolejno po przedziałach między węzłami, bez
+ * wyszukiwania przedziału dla każdej próbki.
+ *
+ * Obiekt przechowuje bufory robocze, więc nie może być używany jednocześnie
+ * przez kilka wątków.
+ *
+ ****************************************************************************
+ */
+class CubicSpline extends PiecewiseCubicInterpolator {
+
+	/**
+	 * Bufory pomocnicze algorytmu Thomasa
+	 */
+	private float[] mu = new float[0];
+	private float[] z = new float[0];
+
+	/**
+	 * Wyznaczenie współczynników funkcji sklejanych. Warunki brzegowe
+	 * naturalne (zerowa druga pochodna na krańcach przedziału).
+	 */
+	@Override
+	void coefficients(int[] x, int nrOfKnots, float[] samples, CancellationCheck cancellation)
+			throws AnalysisInterruptedException {
+		final int n = nrOfKnots - 1;
+
+		// przejście w przód algorytmu Thomasa
+		mu[0] = 0;
+		z[0] = 0;
+		for (int i = 1; i < n; i++) {
+			if ((i & (CHECK_INTERVAL - 1)) == 0)
+				checkCancellation(cancellation);
+			float hPrev = x[i] - x[i - 1];
+			float h = x[i + 1] - x[i];
+			float g = 2F * (x[i + 1] - x[i - 1]) - hPrev * mu[i - 1];
+			mu[i] = h / g;
+			float rhs = 3F * (samples[x[i + 1]] * hPrev - samples[x[i]] * (x[i + 1] - x[i - 1]) + samples[x[i - 1]] * h)
+					/ (hPrev * h);
+			z[i] = (rhs - hPrev * z[i - 1]) / g;
+		}
+
+		// podstawienie wstecz
+		c[n] = 0;
+		for (int j = n - 1; j >= 0; j--) {
+			float h = x[j + 1] - x[j];
+			c[j] = z[j] - mu[j] * c[j + 1];
+			b[j] = (samples[x[j + 1]] - samples[x[j]]) / h - h * (c[j + 1] + 2F * c[j]) / 3F;
+			d[j] = (c[j + 1] - c[j]) / (3F * h);
+		}
+	}
+
+	@Override
+	void allocate(int size) {
+		mu = new float[size];
+		z = new float[size];
+	}
+}
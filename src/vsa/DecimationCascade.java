@@ -0,0 +1,307 @@
+package vsa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/****************************************************************************
+ * Klasa DecimationCascade
+ *
+ * Wielostopniowa decymacja sygnału, alternatywa dla pojedynczego filtru
+ * LowPassFilter z decymacją. Całkowity współczynnik decymacji jest
+ * rozkładany na czynniki pierwsze, a dla każdego czynnika jest projektowany
+ * osobny filtr z oknem Blackmana. Czynniki równe 2 są realizowane filtrami
+ * półpasmowymi (halfband), w których co drugi współczynnik jest zerowy.
+ * Ponieważ każdy stopień pracuje z coraz mniejszą częstotliwością próbkowania,
+ * a pasmo przejściowe pierwszych stopni jest szerokie, łączna liczba mnożeń
+ * na próbkę wejściową jest wielokrotnie mniejsza niż dla jednego filtru
+ * 801-go rzędu.
+ *
+ ****************************************************************************
+ */
+public class DecimationCascade {
+
+	/**
+	 * Częstotliwość odcięcia filtru LowPassFilter - domyślna górna granica
+	 * pasma przepustowego
+	 */
+	static final float DEFAULT_PASSBAND = 400F;
+
+	/**
+	 * Szerokość pasma przejściowego okna Blackmana w jednostkach
+	 * fs / liczba współczynników
+	 */
+	private static final double BLACKMAN_TRANSITION = 5.5;
+
+	/****************************************************************
+	 * Klasa Stage
+	 *
+	 * Pojedynczy stopień decymacji
+	 *
+	 ****************************************************************
+	 */
+	static class Stage {
+		/**
+		 * Współczynniki filtru
+		 */
+		final double[] coeff;
+		/**
+		 * Współczynnik decymacji
+		 */
+		final int factor;
+		/**
+		 * Czy filtr jest półpasmowy
+		 */
+		final boolean halfband;
+		/**
+		 * Częstotliwość próbkowania na wejściu stopnia
+		 */
+		final float inputRate;
+		/**
+		 * Liczba niezerowych współczynników, czyli mnożeń na próbkę
+		 * wyjściową
+		 */
+		final int nonZeroTaps;
+
+		Stage(double[] coeff, int factor, boolean halfband, float inputRate) {
+			this.coeff = coeff;
+			this.factor = factor;
+			this.halfband = halfband;
+			this.inputRate = inputRate;
+			int taps = 0;
+			for (int i = 0; i < coeff.length; i++)
+				if (coeff[i] != 0)
+					taps++;
+			this.nonZeroTaps = taps;
+		}
+	}
+
+	/**
+	 * Kolejne stopnie decymacji
+	 */
+	private final Stage[] stages;
+	/**
+	 * Częstotliwość próbkowania sygnału wejściowego
+	 */
+	private final float inputRate;
+	/**
+	 * Całkowity współczynnik decymacji
+	 */
+	private final int totalFactor;
+
+	/**
+	 * Konstruktor. Projektuje stopnie decymacji dla podanej docelowej
+	 * częstotliwości próbkowania, z pasmem przepustowym takim jak w filtrze
+	 * LowPassFilter.
+	 *
+	 * @param inputRate
+	 *            częstotliwość próbkowania sygnału wejściowego
+	 * @param targetRate
+	 *            docelowa częstotliwość próbkowania
+	 */
+	public DecimationCascade(float inputRate, float targetRate) {
+		this(inputRate, targetRate, DEFAULT_PASSBAND);
+	}
+
+	/**
+	 * Konstruktor. Projektuje stopnie decymacji dla podanej docelowej
+	 * częstotliwości próbkowania. Całkowity współczynnik decymacji jest
+	 * zaokrąglany do liczby całkowitej, a pasmo przepustowe jest zawężane,
+	 * jeżeli nie mieści się poniżej częstotliwości Nyquista sygnału
+	 * wyjściowego.
+	 *
+	 * @param inputRate
+	 *            częstotliwość próbkowania sygnału wejściowego
+	 * @param targetRate
+	 *            docelowa częstotliwość próbkowania
+	 * @param passband
+	 *            górna granica pasma przepustowego
+	 */
+	public DecimationCascade(float inputRate, float targetRate, float passband) {
+		if (targetRate <= 0 || targetRate > inputRate)
+			throw new IllegalArgumentException("Invalid target rate: " + targetRate);
+
+		this.inputRate = inputRate;
+		this.totalFactor = Math.max(1, Math.round(inputRate / targetRate));
+
+		float outputRate = inputRate / totalFactor;
+		passband = Math.min(passband, 0.45F * outputRate);
+
+		ArrayList<Integer> factors = primeFactors(totalFactor);
+		ArrayList<Stage> list = new ArrayList<Stage>();
+		float rate = inputRate;
+		for (int factor : factors) {
+			list.add(designStage(rate, factor, passband));
+			rate /= factor;
+		}
+		stages = list.toArray(new Stage[list.size()]);
+	}
+
+	/**
+	 * Filtracja i decymacja sygnału kolejnymi stopniami. Jeżeli nie ma
+	 * decymacji (współczynnik 1), sygnał jest filtrowany filtrem
+	 * LowPassFilter.
+	 *
+	 * @param samples
+	 *            sygnał wejściowy
+	 * @return sygnał po decymacji albo null, jeżeli sygnał jest zbyt krótki
+	 *         do filtrowania
+	 */
+	public float[] process(float[] samples) {
+		if (stages.length == 0)
+			return LowPassFilter.filetring(samples);
+
+		float[] signal = samples;
+		for (Stage stage : stages)
+			signal = LowPassFilter.decimatingConvolution(stage.coeff, signal, stage.factor,
+					signal.length + stage.coeff.length - 1);
+		return signal;
+	}
+
+	/**
+	 * Zwraca całkowity współczynnik decymacji.
+	 *
+	 * @return współczynnik decymacji
+	 */
+	public int getTotalFactor() {
+		return totalFactor;
+	}
+
+	/**
+	 * Zwraca częstotliwość próbkowania sygnału wyjściowego.
+	 *
+	 * @return częstotliwość próbkowania po decymacji
+	 */
+	public float getOutputRate() {
+		return inputRate / totalFactor;
+	}
+
+	/**
+	 * Zwraca stopnie decymacji.
+	 *
+	 * @return tablica stopni
+	 */
+	Stage[] getStages() {
+		return stages.clone();
+	}
+
+	/**
+	 * Liczba mnożeń na próbkę wejściową całej kaskady.
+	 *
+	 * @return liczba mnożeń na próbkę wejściową
+	 */
+	public double getMacsPerInputSample() {
+		double macs = 0;
+		int decimation = 1;
+		for (Stage stage : stages) {
+			decimation *= stage.factor;
+			// stopień wylicza tylko próbki pozostające po decymacji
+			macs += (double) stage.nonZeroTaps / decimation;
+		}
+		return macs;
+	}
+
+	/**
+	 * Raport porównujący koszt kaskady z pojedynczym filtrem LowPassFilter:
+	 * splotem bezpośrednim (wszystkie próbki wyjściowe) oraz strukturą
+	 * polifazową (tylko próbki pozostające po decymacji).
+	 *
+	 * @return raport w postaci tekstu
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Decimation %.1f Hz -> %.2f Hz (factor %d)%n", inputRate, getOutputRate(),
+				totalFactor));
+		for (int i = 0; i < stages.length; i++) {
+			Stage stage = stages[i];
+			report.append(String.format("  stage %d: %s, factor %d, %d taps (%d non-zero) at %.1f Hz%n", i + 1,
+					stage.halfband ? "halfband" : "FIR", stage.factor, stage.coeff.length, stage.nonZeroTaps,
+					stage.inputRate));
+		}
+		report.append(String.format("  cascade:                 %.2f MACs per input sample%n",
+				getMacsPerInputSample()));
+		report.append(String.format("  single stage, polyphase: %.2f MACs per input sample%n",
+				(double) LowPassFilter.getLength() / totalFactor));
+		report.append(String.format("  single stage, direct:    %d MACs per input sample%n", LowPassFilter.getLength()));
+		return report.toString();
+	}
+
+	/**
+	 * Zaprojektowanie stopnia decymacji. Pasmo przepustowe stopnia sięga do
+	 * passband, a pasmo zaporowe zaczyna się od częstotliwości, która po
+	 * decymacji nałożyłaby się na pasmo przepustowe.
+	 */
+	private static Stage designStage(float rate, int factor, float passband) {
+		float outputRate = rate / factor;
+		double stopband = outputRate - passband;
+		double cutoff = (passband + stopband) / 2;
+
+		int taps = (int) Math.ceil(BLACKMAN_TRANSITION * rate / (stopband - passband));
+
+		if (factor == 2) {
+			// filtr półpasmowy: długość 4K + 3, odcięcie w rate / 4, co
+			// druga próbka od środka jest zerowa
+			taps = Math.max(taps, 3);
+			taps += (3 - taps % 4 + 4) % 4;
+			double[] coeff = windowedSinc(taps, 0.25);
+			int middle = (taps - 1) / 2;
+			for (int i = 0; i < taps; i++)
+				if (i != middle && (i - middle) % 2 == 0)
+					coeff[i] = 0;
+			return new Stage(coeff, factor, true, rate);
+		}
+
+		// nieparzysta długość, żeby opóźnienie było całkowitą liczbą próbek
+		taps = Math.max(taps, 3) | 1;
+		return new Stage(windowedSinc(taps, cutoff / rate), factor, false, rate);
+	}
+
+	/**
+	 * Współczynniki filtru dolnoprzepustowego metodą okna (okno Blackmana),
+	 * znormalizowane do jednostkowego wzmocnienia dla składowej stałej.
+	 *
+	 * @param taps
+	 *            liczba współczynników
+	 * @param cutoff
+	 *            częstotliwość odcięcia względem częstotliwości próbkowania
+	 */
+	private static double[] windowedSinc(int taps, double cutoff) {
+		double[] coeff = new double[taps];
+		double middle = (taps - 1) / 2.0;
+		double sum = 0;
+		for (int i = 0; i < taps; i++) {
+			double t = i - middle;
+			double sinc = (t == 0) ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+			double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * i / (taps - 1))
+					+ 0.08 * Math.cos(4 * Math.PI * i / (taps - 1));
+			coeff[i] = sinc * window;
+			sum += coeff[i];
+		}
+		for (int i = 0; i < taps; i++)
+			coeff[i] /= sum;
+		return coeff;
+	}
+
+	/**
+	 * Rozkład liczby na czynniki pierwsze. Czynniki różne od 2 są ustawiane
+	 * malejąco na początku, a czynniki 2 (filtry półpasmowe) na końcu, gdzie
+	 * pasmo przejściowe jest najwęższe.
+	 */
+	private static ArrayList<Integer> primeFactors(int n) {
+		ArrayList<Integer> odd = new ArrayList<Integer>();
+		int twos = 0;
+		while (n % 2 == 0) {
+			twos++;
+			n /= 2;
+		}
+		for (int f = 3; f <= n; f += 2) {
+			while (n % f == 0) {
+				odd.add(f);
+				n /= f;
+			}
+		}
+		Collections.sort(odd, Collections.reverseOrder());
+		for (int i = 0; i < twos; i++)
+			odd.add(2);
+		return odd;
+	}
+}
@@ -0,0 +1,224 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa DspKernels
+ *
+ * Pętle wewnętrzne przetwarzania sygnału: splot filtru, obwiednie i różnice w
+ * algorytmie EMD, normalizacja. Operacje sumujące lub szukające maksimum
+ * (splot, suma kwadratów różnic, największa wartość bezwzględna) mają dwie
+ * wersje:
+ *
+ * - skalarną, wykonującą działania dokładnie w tej samej kolejności co
+ * pierwotne pętle (wynik referencyjny),
+ *
+ * - wektorową, w której pętla jest rozwinięta na LANES niezależnych torów
+ * (osobne akumulatory), co przerywa zależność każdej iteracji od wyniku
+ * poprzedniej i pozwala procesorowi wykonywać kilka działań równolegle.
+ * Końcówka tablicy krótsza niż LANES jest liczona osobno, poza pętlą główną.
+ *
+ * Operacje wykonywane niezależnie na każdej próbce (średnia obwiedni,
+ * różnica, dzielenie) są zwykłymi pętlami - kompilator JIT sam je rozwija i
+ * wektoryzuje, więc ręczne rozwinięcie niczego nie daje.
+ *
+ * Wersja jest wybierana w czasie działania programu metodą setVectorized(),
+ * dzięki czemu można porównać wyniki obu wersji. Wersja wektorowa sumuje w
+ * innej kolejności, więc jej wyniki mogą się różnić od wersji skalarnej na
+ * poziomie błędów zaokrągleń.
+ *
+ ****************************************************************************
+ */
+final class DspKernels {
+
+	/**
+	 * Liczba torów w wersji wektorowej
+	 */
+	static final int LANES = 4;
+
+	/**
+	 * Czy jest używana wersja wektorowa
+	 */
+	private static volatile boolean vectorized = true;
+
+	private DspKernels() {
+	}
+
+	/**
+	 * Wybór wersji pętli.
+	 *
+	 * @param enabled
+	 *            true - wersja wektorowa, false - wersja skalarna
+	 */
+	static void setVectorized(boolean enabled) {
+		vectorized = enabled;
+	}
+
+	/**
+	 * Zwraca informację, czy jest używana wersja wektorowa.
+	 *
+	 * @return true dla wersji wektorowej
+	 */
+	static boolean isVectorized() {
+		return vectorized;
+	}
+
+	/**
+	 * Splot fragmentu filtru z sygnałem: suma h[k] * x[newest - (k - from)]
+	 * dla k od from do to - 1. Kolejne współczynniki są mnożone przez coraz
+	 * starsze próbki, zaczynając od próbki newest.
+	 *
+	 * @param h
+	 *            współczynniki filtru
+	 * @param from
+	 *            indeks pierwszego współczynnika
+	 * @param to
+	 *            indeks za ostatnim współczynnikiem
+	 * @param x
+	 *            sygnał
+	 * @param newest
+	 *            indeks próbki mnożonej przez h[from]
+	 * @return wynik splotu
+	 */
+	static float convolve(double[] h, int from, int to, float[] x, int newest) {
+		final int base = newest + from;
+		if (!vectorized) {
+			float sum = 0;
+			for (int k = from; k < to; k++)
+				sum += h[k] * x[base - k];
+			return sum;
+		}
+
+		float sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+		int k = from;
+		for (; k + LANES <= to; k += LANES) {
+			sum0 += h[k] * x[base - k];
+			sum1 += h[k + 1] * x[base - k - 1];
+			sum2 += h[k + 2] * x[base - k - 2];
+			sum3 += h[k + 3] * x[base - k - 3];
+		}
+		for (; k < to; k++)
+			sum0 += h[k] * x[base - k];
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/**
+	 * Średnia z górnej i dolnej obwiedni.
+	 *
+	 * @param maxEnvelope
+	 *            górna obwiednia
+	 * @param minEnvelope
+	 *            dolna obwiednia
+	 * @param meanEnvelope
+	 *            bufor na średnią
+	 * @param length
+	 *            liczba próbek
+	 */
+	static void mean(float[] maxEnvelope, float[] minEnvelope, float[] meanEnvelope, int length) {
+		for (int i = 0; i < length; i++)
+			meanEnvelope[i] = (maxEnvelope[i] + minEnvelope[i]) / 2;
+	}
+
+	/**
+	 * Różnica dwóch sygnałów: result = a - b.
+	 *
+	 * @param a
+	 *            odjemna
+	 * @param b
+	 *            odjemnik
+	 * @param result
+	 *            bufor na wynik
+	 * @param length
+	 *            liczba próbek
+	 */
+	static void subtract(float[] a, float[] b, float[] result, int length) {
+		for (int i = 0; i < length; i++)
+			result[i] = a[i] - b[i];
+	}
+
+	/**
+	 * Znormalizowana suma kwadratów różnic kolejnych komponentów - kryterium
+	 * zatrzymania przesiewania w algorytmie EMD.
+	 *
+	 * @param component
+	 *            komponent po odjęciu średniej z obwiedni
+	 * @param previousComponent
+	 *            komponent przed odjęciem średniej z obwiedni
+	 * @param length
+	 *            liczba próbek
+	 * @return suma kwadratów różnic
+	 */
+	static float squaredDifference(float[] component, float[] previousComponent, int length) {
+		if (!vectorized) {
+			float sum = 0;
+			for (int i = 0; i < length; i++)
+				sum += (component[i] - previousComponent[i]) * (component[i] - previousComponent[i])
+						/ (previousComponent[i] * previousComponent[i] + 1e-8);
+			return sum;
+		}
+
+		float sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+		int i = 0;
+		for (; i + LANES <= length; i += LANES) {
+			sum0 += squaredDifference(component[i], previousComponent[i]);
+			sum1 += squaredDifference(component[i + 1], previousComponent[i + 1]);
+			sum2 += squaredDifference(component[i + 2], previousComponent[i + 2]);
+			sum3 += squaredDifference(component[i + 3], previousComponent[i + 3]);
+		}
+		for (; i < length; i++)
+			sum0 += squaredDifference(component[i], previousComponent[i]);
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/**
+	 * Największa wartość bezwzględna próbki.
+	 *
+	 * @param samples
+	 *            sygnał
+	 * @param length
+	 *            liczba próbek
+	 * @return największa wartość bezwzględna
+	 */
+	static float maxAbs(float[] samples, int length) {
+		if (!vectorized) {
+			float maxValue = 0;
+			for (int i = 0; i < length; i++)
+				if (maxValue < Math.abs(samples[i]))
+					maxValue = Math.abs(samples[i]);
+			return maxValue;
+		}
+
+		float max0 = 0, max1 = 0, max2 = 0, max3 = 0;
+		int i = 0;
+		for (; i + LANES <= length; i += LANES) {
+			max0 = Math.max(max0, Math.abs(samples[i]));
+			max1 = Math.max(max1, Math.abs(samples[i + 1]));
+			max2 = Math.max(max2, Math.abs(samples[i + 2]));
+			max3 = Math.max(max3, Math.abs(samples[i + 3]));
+		}
+		for (; i < length; i++)
+			max0 = Math.max(max0, Math.abs(samples[i]));
+		return Math.max(Math.max(max0, max1), Math.max(max2, max3));
+	}
+
+	/**
+	 * Podzielenie wszystkich próbek przez podaną wartość.
+	 *
+	 * @param samples
+	 *            sygnał
+	 * @param length
+	 *            liczba próbek
+	 * @param divisor
+	 *            dzielnik
+	 */
+	static void divide(float[] samples, int length, float divisor) {
+		for (int i = 0; i < length; i++)
+			samples[i] = samples[i] / divisor;
+	}
+
+	/**
+	 * Składnik sumy kwadratów różnic dla jednej próbki.
+	 */
+	private static float squaredDifference(float component, float previousComponent) {
+		return (float) ((component - previousComponent) * (component - previousComponent)
+				/ (previousComponent * previousComponent + 1e-8));
+	}
+}
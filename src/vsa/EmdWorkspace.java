@@ -0,0 +1,198 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa EmdWorkspace
+ *
+ * Zestaw buforów roboczych algorytmu EMD. Wszystkie tablice potrzebne w
+ * pojedynczej iteracji przesiewania są alokowane raz i wykorzystywane ponownie
+ * w kolejnych iteracjach, kolejnych funkcjach IMF oraz kolejnych analizach.
+ * Bufory mogą być dłuższe niż analizowany sygnał, dlatego metody korzystające z
+ * nich operują na jawnie podanej długości.
+ *
+ ****************************************************************************
+ */
+class EmdWorkspace {
+
+	/**
+	 * Aktualnie przesiewany komponent sygnału
+	 */
+	float[] component;
+	/**
+	 * Komponent z poprzedniej iteracji przesiewania
+	 */
+	float[] previousComponent;
+	/**
+	 * Górna obwiednia
+	 */
+	float[] maxEnvelope;
+	/**
+	 * Dolna obwiednia
+	 */
+	float[] minEnvelope;
+	/**
+	 * Średnia z obwiedni
+	 */
+	float[] meanEnvelope;
+
+	/**
+	 * Położenie maksimów i minimów
+	 */
+	final IntList max = new IntList();
+	final IntList min = new IntList();
+
+	/**
+	 * Miejsca zerowe komponentu
+	 */
+	final Zeros zeros = new Zeros();
+
+	/**
+	 * Interpolacja górnej i dolnej obwiedni
+	 */
+	EnvelopeInterpolator maxInterpolator = new CubicSpline();
+	EnvelopeInterpolator minInterpolator = new CubicSpline();
+
+	/**
+	 * Rodzaj interpolacji obwiedni
+	 */
+	private Analysis.EnvelopeType envelopeType = Analysis.EnvelopeType.CUBIC;
+
+	/**
+	 * Liczba iteracji przesiewania aktualnego komponentu
+	 */
+	int sifts;
+
+	/**
+	 * Bufory robocze dla wątków wykonujących zadania równoległe (np. wątków
+	 * puli AnalysisThreadPool)
+	 */
+	private static final ThreadLocal<EmdWorkspace> perThread = new ThreadLocal<EmdWorkspace>() {
+		@Override
+		protected EmdWorkspace initialValue() {
+			return new EmdWorkspace();
+		}
+	};
+
+	// liczba próbek, którą mogą pomieścić bufory sygnału
+	private int capacity = 0;
+
+	// liczba alokacji buforów oraz łączna liczba zaalokowanych bajtów
+	private int allocationCount = 0;
+	private long allocatedBytes = 0;
+
+	/**
+	 * Konstruktor. Bufory są tworzone przy pierwszym użyciu.
+	 */
+	EmdWorkspace() {
+	}
+
+	/**
+	 * Konstruktor wstępnie alokujący bufory dla sygnału o podanej długości.
+	 *
+	 * @param capacity
+	 *            liczba próbek sygnału
+	 */
+	EmdWorkspace(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Zwraca zestaw buforów przypisany do bieżącego wątku. Zestaw jest
+	 * wykorzystywany ponownie przez kolejne zadania wykonywane w tym wątku.
+	 *
+	 * @return bufory robocze bieżącego wątku
+	 */
+	static EmdWorkspace forCurrentThread() {
+		return perThread.get();
+	}
+
+	/**
+	 * Wybór rodzaju interpolacji obwiedni. Obiekty interpolacji są tworzone
+	 * ponownie tylko przy zmianie rodzaju.
+	 *
+	 * @param type
+	 *            rodzaj interpolacji
+	 */
+	void setEnvelopeType(Analysis.EnvelopeType type) {
+		if (type == envelopeType)
+			return;
+		maxInterpolator = createInterpolator(type);
+		minInterpolator = createInterpolator(type);
+		envelopeType = type;
+	}
+
+	/**
+	 * Utworzenie obiektu interpolacji podanego rodzaju.
+	 */
+	private static EnvelopeInterpolator createInterpolator(Analysis.EnvelopeType type) {
+		switch (type) {
+		case PCHIP:
+			return new PchipInterpolator();
+		case AKIMA:
+			return new AkimaInterpolator();
+		case LINEAR:
+			return new LinearInterpolator();
+		default:
+			return new CubicSpline();
+		}
+	}
+
+	/**
+	 * Zapewnienie, że bufory sygnału pomieszczą podaną liczbę próbek. Bufory
+	 * są alokowane ponownie tylko wtedy, gdy są zbyt krótkie.
+	 *
+	 * @param length
+	 *            liczba próbek sygnału
+	 */
+	void ensureCapacity(int length) {
+		if (length <= capacity)
+			return;
+
+		component = new float[length];
+		previousComponent = new float[length];
+		maxEnvelope = new float[length];
+		minEnvelope = new float[length];
+		meanEnvelope = new float[length];
+		capacity = length;
+
+		allocationCount += 5;
+		allocatedBytes += 5L * 4L * length;
+	}
+
+	/**
+	 * Zamiana buforów bieżącego i poprzedniego komponentu. Zastępuje
+	 * kopiowanie komponentu w każdej iteracji przesiewania.
+	 */
+	void swapComponents() {
+		float[] temp = previousComponent;
+		previousComponent = component;
+		component = temp;
+	}
+
+	/**
+	 * Zwraca liczbę próbek, którą mogą pomieścić bufory.
+	 *
+	 * @return pojemność buforów
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Zwraca liczbę alokacji buforów od utworzenia obiektu.
+	 *
+	 * @return liczba alokacji
+	 */
+	int getAllocationCount() {
+		return allocationCount;
+	}
+
+	/**
+	 * Zwraca łączną liczbę bajtów zaalokowanych na bufory od utworzenia
+	 * obiektu.
+	 *
+	 * @return liczba bajtów
+	 */
+	long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+}
@@ -0,0 +1,364 @@
+package vsa;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa EnsembleEmd
+ *
+ * Zespołowy algorytm EMD (EEMD). Do sygnału jest dodawany szum, a algorytm
+ * EMD jest wykonywany wielokrotnie, za każdym razem z inną realizacją szumu.
+ * Funkcje IMF o tych samych numerach są uśredniane - szum się znosi, a
+ * składowe sygnału o zbliżonych częstotliwościach trafiają do tych samych
+ * funkcji IMF, co ogranicza mieszanie modów (mode mixing) zwykłego EMD.
+ *
+ * Próby są wykonywane równolegle w puli AnalysisThreadPool. Zakres prób jest
+ * dzielony rekurencyjnie na zadania, każde zadanie sumuje wyniki swoich prób
+ * we własnym akumulatorze (bez synchronizacji), a akumulatory są łączone przy
+ * powrocie z zadań podrzędnych. Każda próba ma własny generator szumu z
+ * ziarnem wyznaczonym z numeru próby, więc wynik nie zależy od liczby wątków
+ * ani kolejności wykonania prób (z dokładnością do błędów zaokrągleń przy
+ * sumowaniu).
+ *
+ ****************************************************************************
+ */
+class EnsembleEmd {
+
+	/**
+	 * Domyślna liczba prób
+	 */
+	static final int DEFAULT_TRIALS = 50;
+
+	/**
+	 * Domyślne odchylenie standardowe szumu względem odchylenia
+	 * standardowego sygnału
+	 */
+	static final float DEFAULT_NOISE_AMPLITUDE = 0.2F;
+
+	/**
+	 * Ziarno generatorów szumu, stałe, żeby kolejne analizy tego samego
+	 * nagrania dawały ten sam wynik
+	 */
+	static final long DEFAULT_SEED = 1L;
+
+	/**
+	 * Analiza, której algorytm EMD jest wykonywany w kolejnych próbach
+	 */
+	private final Analysis analysis;
+
+	/**
+	 * Liczba prób
+	 */
+	private final int trials;
+
+	/**
+	 * Odchylenie standardowe szumu względem odchylenia standardowego sygnału
+	 */
+	private final float noiseAmplitude;
+
+	/**
+	 * Rodzaj szumu
+	 */
+	private final Analysis.NoiseType noiseType;
+
+	/**
+	 * Ziarno generatorów szumu
+	 */
+	private final long seed;
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 * @param trials
+	 *            liczba prób
+	 * @param noiseAmplitude
+	 *            odchylenie standardowe szumu względem odchylenia
+	 *            standardowego sygnału
+	 * @param noiseType
+	 *            rodzaj szumu
+	 * @param seed
+	 *            ziarno generatorów szumu
+	 */
+	EnsembleEmd(Analysis analysis, int trials, float noiseAmplitude, Analysis.NoiseType noiseType, long seed) {
+		if (trials < 1)
+			throw new IllegalArgumentException("Invalid number of trials: " + trials);
+		if (noiseAmplitude <= 0)
+			throw new IllegalArgumentException("Invalid noise amplitude: " + noiseAmplitude);
+		this.analysis = analysis;
+		this.trials = trials;
+		this.noiseAmplitude = noiseAmplitude;
+		this.noiseType = noiseType;
+		this.seed = seed;
+	}
+
+	/**
+	 * Dekompozycja sygnału na uśrednione funkcje IMF. Funkcja IMF, której nie
+	 * było w danej próbie, wnosi do średniej zero. Częstotliwości są wyliczane
+	 * dla uśrednionych funkcji, a funkcje o częstotliwości poniżej 4 Hz są
+	 * pomijane, tak jak w algorytmie EMD.
+	 *
+	 * Po przekroczeniu limitu czasu analizy nowe próby nie są rozpoczynane, a
+	 * średnia obejmuje tylko próby zakończone przed limitem. Próby przerwane
+	 * w trakcie przesiewania są uśredniane tylko wtedy, gdy żadna próba nie
+	 * zdążyła się zakończyć.
+	 *
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane uśrednione
+	 *            funkcje IMF
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	void decompose(float[] samples, ImfSet imfs) throws AnalysisInterruptedException {
+		final int length = samples.length;
+		final float deviation = noiseAmplitude * standardDeviation(samples, length);
+
+		// kilka zadań na wątek, żeby wyrównać obciążenie przy różnym czasie
+		// trwania prób
+		int grain = Math.max(1, trials / (4 * AnalysisThreadPool.getParallelism()));
+		TrialsTask task = new TrialsTask(samples, deviation, 0, trials, grain);
+		AnalysisThreadPool.get().invoke(task);
+		if (task.interrupted != null)
+			throw task.interrupted;
+
+		Accumulator sum = (task.result.trials > 0) ? task.result : task.partial;
+		Debug.debug("EEMD: " + sum.trials + "/" + trials + " trials" + ((sum == task.partial) ? " (partial)" : "")
+				+ ", " + noiseType + " noise, " + sum.imfs.size() + " IMFs");
+
+		Zeros zeros = new Zeros();
+		for (int k = 0; k < sum.imfs.size(); k++) {
+			float[] imf = sum.imfs.get(k);
+			for (int i = 0; i < length; i++)
+				imf[i] /= sum.trials;
+
+			float freq = analysis.avgerageFrequency(imf, length, zeros);
+			if (freq >= 4F)
+				imfs.add(imf, freq, sum.siftCounts.get(k));
+		}
+	}
+
+	/**
+	 * Realizacja szumu dla jednej próby.
+	 *
+	 * @param type
+	 *            rodzaj szumu
+	 * @param length
+	 *            liczba próbek
+	 * @param deviation
+	 *            odchylenie standardowe szumu
+	 * @param seed
+	 *            ziarno generatora
+	 * @return próbki szumu
+	 */
+	static float[] noise(Analysis.NoiseType type, int length, float deviation, long seed) {
+		float[] noise = new float[length];
+		if (type == Analysis.NoiseType.WHITE) {
+			NoiseGenerator generator = new WhiteNoiseGenerator(deviation, seed);
+			for (int i = 0; i < length; i++)
+				noise[i] = (float) generator.getNext();
+			return noise;
+		}
+
+		// szum brązowy - usunięcie składowej stałej i przeskalowanie do
+		// zadanego odchylenia standardowego
+		NoiseGenerator generator = new BrownNoiseGenerator(-1.0, 1.0, 0.1, 0.02, seed);
+		double mean = 0;
+		for (int i = 0; i < length; i++) {
+			noise[i] = (float) generator.getNext();
+			mean += noise[i];
+		}
+		mean /= length;
+		for (int i = 0; i < length; i++)
+			noise[i] -= mean;
+		float scale = deviation / Math.max(standardDeviation(noise, length), Float.MIN_NORMAL);
+		for (int i = 0; i < length; i++)
+			noise[i] *= scale;
+		return noise;
+	}
+
+	/**
+	 * Ziarno generatora szumu dla podanej próby. Kolejne numery prób są
+	 * mieszane (funkcja mieszająca SplitMix64), żeby ziarna sąsiednich prób
+	 * nie dawały skorelowanych ciągów.
+	 *
+	 * @param seed
+	 *            ziarno całej dekompozycji
+	 * @param trial
+	 *            numer próby
+	 * @return ziarno generatora
+	 */
+	static long trialSeed(long seed, long trial) {
+		long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Odchylenie standardowe sygnału.
+	 */
+	static float standardDeviation(float[] samples, int length) {
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < length; i++) {
+			sum += samples[i];
+			sumOfSquares += samples[i] * samples[i];
+		}
+		double mean = sum / length;
+		return (float) Math.sqrt(Math.max(0, sumOfSquares / length - mean * mean));
+	}
+
+	/****************************************************************
+	 * Klasa Accumulator
+	 *
+	 * Sumy funkcji IMF o kolejnych numerach z wielu prób
+	 *
+	 ****************************************************************
+	 */
+	static class Accumulator {
+		/**
+		 * Sumy funkcji IMF
+		 */
+		final ArrayList<float[]> imfs = new ArrayList<float[]>();
+		/**
+		 * Sumy liczby iteracji przesiewania
+		 */
+		final IntList siftCounts = new IntList();
+		/**
+		 * Liczba dodanych prób
+		 */
+		int trials;
+
+		/**
+		 * Dodanie funkcji IMF z jednej próby.
+		 */
+		void add(ImfSet trial) {
+			final int length = trial.getLength();
+			float[] data = trial.getData();
+			for (int k = 0; k < trial.size(); k++) {
+				int offset = trial.getOffset(k);
+				if (k == imfs.size()) {
+					// pierwsza funkcja o tym numerze - kopia wiersza
+					imfs.add(trial.getSamples(k));
+					siftCounts.add(trial.getSiftCount(k));
+				} else {
+					float[] sum = imfs.get(k);
+					for (int i = 0; i < length; i++)
+						sum[i] += data[offset + i];
+					siftCounts.set(k, siftCounts.get(k) + trial.getSiftCount(k));
+				}
+			}
+			trials++;
+		}
+
+		/**
+		 * Dołączenie sum z innego akumulatora.
+		 *
+		 * @return ten akumulator
+		 */
+		Accumulator merge(Accumulator other) {
+			for (int k = 0; k < other.imfs.size(); k++) {
+				if (k == imfs.size()) {
+					imfs.add(other.imfs.get(k));
+					siftCounts.add(other.siftCounts.get(k));
+				} else {
+					add(imfs.get(k), other.imfs.get(k));
+					siftCounts.set(k, siftCounts.get(k) + other.siftCounts.get(k));
+				}
+			}
+			trials += other.trials;
+			return this;
+		}
+
+		private static void add(float[] sum, float[] samples) {
+			for (int i = 0; i < sum.length; i++)
+				sum[i] += samples[i];
+		}
+	}
+
+	/****************************************************************
+	 * Klasa TrialsTask
+	 *
+	 * Wykonanie prób o numerach od from do to - 1
+	 *
+	 ****************************************************************
+	 */
+	@SuppressWarnings("serial")
+	private class TrialsTask extends RecursiveAction {
+		private final float[] samples;
+		private final float deviation;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		/**
+		 * Sumy funkcji IMF z prób zakończonych przed upływem limitu czasu
+		 */
+		Accumulator result;
+
+		/**
+		 * Sumy funkcji IMF z prób przerwanych po upływie limitu czasu
+		 */
+		Accumulator partial;
+
+		/**
+		 * Wyjątek przerwania analizy zgłoszony w trakcie dekompozycji
+		 */
+		AnalysisInterruptedException interrupted;
+
+		TrialsTask(float[] samples, float deviation, int from, int to, int grain) {
+			this.samples = samples;
+			this.deviation = deviation;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				TrialsTask left = new TrialsTask(samples, deviation, from, middle, grain);
+				TrialsTask right = new TrialsTask(samples, deviation, middle, to, grain);
+				invokeAll(left, right);
+				interrupted = (left.interrupted != null) ? left.interrupted : right.interrupted;
+				if (interrupted == null) {
+					result = left.result.merge(right.result);
+					partial = left.partial.merge(right.partial);
+				}
+				return;
+			}
+
+			final int length = samples.length;
+			Accumulator accumulator = new Accumulator();
+			Accumulator cut = new Accumulator();
+			EmdWorkspace workspace = EmdWorkspace.forCurrentThread();
+			ImfSet trialImfs = new ImfSet(length, Analysis.ImfRetention.ALL);
+			try {
+				// po upływie limitu czasu nowe próby nie są rozpoczynane
+				for (int trial = from; trial < to && !analysis.isDeadlineReached(); trial++) {
+					float[] noisy = noise(noiseType, length, deviation, trialSeed(seed, trial));
+					for (int i = 0; i < length; i++)
+						noisy[i] += samples[i];
+
+					trialImfs.clear();
+					analysis.emd(noisy, trialImfs, workspace);
+					if (analysis.isDeadlineReached())
+						cut.add(trialImfs);
+					else
+						accumulator.add(trialImfs);
+				}
+			} catch (AnalysisInterruptedException e) {
+				interrupted = e;
+				return;
+			}
+			result = accumulator;
+			partial = cut;
+		}
+	}
+}
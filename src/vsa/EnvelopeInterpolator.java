@@ -0,0 +1,41 @@
+package vsa;
+
+/****************************************************************************
+ * Interfejs EnvelopeInterpolator
+ *
+ * Interpolacja obwiedni w algorytmie EMD: na podstawie położeń ekstremów
+ * (węzłów) wyliczana jest wartość obwiedni dla każdej próbki sygnału.
+ * Implementacje różnią się kosztem i kształtem obwiedni, a przez to liczbą
+ * iteracji przesiewania i częstotliwościami otrzymanych funkcji IMF.
+ * Rodzaj interpolacji jest wybierany dla analizy metodą
+ * Analysis.setEnvelopeType().
+ *
+ * Obiekty mogą przechowywać bufory robocze, więc nie mogą być używane
+ * jednocześnie przez kilka wątków.
+ *
+ ****************************************************************************
+ */
+interface EnvelopeInterpolator {
+
+	/**
+	 * Interpolacja sygnału na podstawie podanych węzłów. Wartość w węźle jest
+	 * pobierana z tablicy samples.
+	 *
+	 * @param knots
+	 *            rosnące indeksy próbek będące węzłami interpolacji
+	 * @param nrOfKnots
+	 *            liczba węzłów, co najmniej 3
+	 * @param samples
+	 *            sygnał, z którego są pobierane wartości w węzłach
+	 * @param interpolated
+	 *            bufor, do którego jest zapisywany wynik interpolacji
+	 * @param length
+	 *            liczba próbek do wyliczenia
+	 * @param cancellation
+	 *            sprawdzenie przerwania obliczeń albo null
+	 * @throws AnalysisInterruptedException
+	 *             obliczenia zostały przerwane
+	 */
+	void interpolate(int[] knots, int nrOfKnots, float[] samples, float[] interpolated, int length,
+			CancellationCheck cancellation) throws AnalysisInterruptedException;
+}
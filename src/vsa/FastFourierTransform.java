@@ -0,0 +1,230 @@
+package vsa;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/****************************************************************************
+ * Klasa FastFourierTransform
+ *
+ * Szybka transformata Fouriera o podstawie 2, wykonywana w miejscu na
+ * tablicach części rzeczywistej i urojonej. Tablice współczynników obrotu
+ * oraz permutacji odwracającej bity są wyliczane raz dla danego rozmiaru i
+ * przechowywane w pamięci podręcznej, dlatego obiekty należy pobierać metodą
+ * forSize(). Obiekt nie ma stanu zmienianego przez transformację, więc może być
+ * współdzielony przez wiele wątków.
+ *
+ ****************************************************************************
+ */
+class FastFourierTransform {
+
+	/**
+	 * Obiekty dla kolejnych rozmiarów transformaty
+	 */
+	private static final ConcurrentHashMap<Integer, FastFourierTransform> cache = new ConcurrentHashMap<Integer, FastFourierTransform>();
+
+	/**
+	 * Rozmiar transformaty
+	 */
+	private final int size;
+	/**
+	 * Współczynniki obrotu: cos(2*pi*k/size) i sin(2*pi*k/size) dla k <
+	 * size/2
+	 */
+	private final double[] cos;
+	private final double[] sin;
+	/**
+	 * Permutacja odwracająca bity indeksów
+	 */
+	private final int[] bitReversed;
+
+	/**
+	 * Zwraca obiekt wykonujący transformatę o podanym rozmiarze.
+	 *
+	 * @param size
+	 *            rozmiar transformaty, potęga liczby 2
+	 * @return obiekt wykonujący transformatę
+	 */
+	static FastFourierTransform forSize(int size) {
+		FastFourierTransform fft = cache.get(size);
+		if (fft == null) {
+			fft = new FastFourierTransform(size);
+			FastFourierTransform previous = cache.putIfAbsent(size, fft);
+			if (previous != null)
+				fft = previous;
+		}
+		return fft;
+	}
+
+	/**
+	 * Zwraca najmniejszą potęgę liczby 2 nie mniejszą od podanej liczby.
+	 *
+	 * @param n
+	 *            liczba dodatnia
+	 * @return potęga liczby 2
+	 */
+	static int nextPowerOfTwo(int n) {
+		int size = 1;
+		while (size < n)
+			size <<= 1;
+		return size;
+	}
+
+	/**
+	 * Konstruktor. Wylicza tablice współczynników obrotu i permutacji.
+	 *
+	 * @param size
+	 *            rozmiar transformaty, potęga liczby 2
+	 */
+	private FastFourierTransform(int size) {
+		if (size < 1 || (size & (size - 1)) != 0)
+			throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+		this.size = size;
+
+		cos = new double[Math.max(size / 2, 1)];
+		sin = new double[Math.max(size / 2, 1)];
+		for (int k = 0; k < size / 2; k++) {
+			cos[k] = Math.cos(2 * Math.PI * k / size);
+			sin[k] = Math.sin(2 * Math.PI * k / size);
+		}
+
+		bitReversed = new int[size];
+		int bits = Integer.numberOfTrailingZeros(size);
+		for (int i = 0; i < size; i++)
+			bitReversed[i] = (bits == 0) ? 0 : Integer.reverse(i) >>> (32 - bits);
+	}
+
+	/**
+	 * Zwraca rozmiar transformaty.
+	 *
+	 * @return rozmiar transformaty
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Transformata prosta, wykonywana w miejscu.
+	 *
+	 * @param re
+	 *            część rzeczywista
+	 * @param im
+	 *            część urojona
+	 */
+	void forward(double[] re, double[] im) {
+		transform(re, im, -1);
+	}
+
+	/**
+	 * Transformata odwrotna, wykonywana w miejscu, razem ze skalowaniem przez
+	 * 1/size.
+	 *
+	 * @param re
+	 *            część rzeczywista
+	 * @param im
+	 *            część urojona
+	 */
+	void inverse(double[] re, double[] im) {
+		transform(re, im, 1);
+		double scale = 1.0 / size;
+		for (int i = 0; i < size; i++) {
+			re[i] *= scale;
+			im[i] *= scale;
+		}
+	}
+
+	/**
+	 * Transformata prosta sygnału rzeczywistego, wykonywana transformatą
+	 * zespoloną o połowie rozmiaru: próbki parzyste i nieparzyste tworzą
+	 * część rzeczywistą i urojoną sygnału zespolonego, a widmo sygnału
+	 * rzeczywistego jest z jego transformaty rozdzielane przy użyciu
+	 * współczynników obrotu tego obiektu. Próbki o indeksach od length do
+	 * size - 1 są traktowane jako zera (dopełnienie do rozmiaru transformaty).
+	 * Wyznaczane są prążki od 0 do size/2, pozostałe są ich sprzężeniami.
+	 *
+	 * @param samples
+	 *            sygnał rzeczywisty
+	 * @param length
+	 *            liczba próbek sygnału, nie większa od rozmiaru transformaty
+	 * @param re
+	 *            część rzeczywista widma, co najmniej size/2 + 1 elementów
+	 * @param im
+	 *            część urojona widma, co najmniej size/2 + 1 elementów
+	 */
+	void forwardReal(float[] samples, int length, double[] re, double[] im) {
+		if (size < 2)
+			throw new IllegalArgumentException("Real FFT size must be at least 2: " + size);
+		if (length > size)
+			throw new IllegalArgumentException("Signal longer than FFT size: " + length + " > " + size);
+		final int half = size >> 1;
+
+		// próbki parzyste i nieparzyste jako jeden sygnał zespolony
+		for (int k = 0; k < half; k++) {
+			re[k] = (2 * k < length) ? samples[2 * k] : 0;
+			im[k] = (2 * k + 1 < length) ? samples[2 * k + 1] : 0;
+		}
+		forSize(half).forward(re, im);
+
+		// rozdzielenie widm próbek parzystych (E) i nieparzystych (O):
+		// X[k] = E[k] + W^k O[k], X[half - k] = sprzężenie(E[k] - W^k O[k])
+		double r0 = re[0], i0 = im[0];
+		re[0] = r0 + i0;
+		im[0] = 0;
+		re[half] = r0 - i0;
+		im[half] = 0;
+		for (int k = 1; 2 * k <= half; k++) {
+			double zr = re[k], zi = im[k];
+			double cr = re[half - k], ci = im[half - k];
+			double er = 0.5 * (zr + cr);
+			double ei = 0.5 * (zi - ci);
+			double or = 0.5 * (zi + ci);
+			double oi = -0.5 * (zr - cr);
+			double wr = cos[k];
+			double wi = -sin[k];
+			double tr = wr * or - wi * oi;
+			double ti = wr * oi + wi * or;
+			re[half - k] = er - tr;
+			im[half - k] = ti - ei;
+			re[k] = er + tr;
+			im[k] = ei + ti;
+		}
+	}
+
+	/**
+	 * Transformata metodą Cooleya-Tukeya z podziałem w czasie.
+	 *
+	 * @param sign
+	 *            znak wykładnika, -1 dla transformaty prostej, 1 dla odwrotnej
+	 */
+	private void transform(double[] re, double[] im, int sign) {
+		// permutacja odwracająca bity
+		for (int i = 0; i < size; i++) {
+			int j = bitReversed[i];
+			if (j > i) {
+				double t = re[i];
+				re[i] = re[j];
+				re[j] = t;
+				t = im[i];
+				im[i] = im[j];
+				im[j] = t;
+			}
+		}
+
+		// kolejne etapy motylków
+		for (int half = 1; half < size; half <<= 1) {
+			int step = size / (2 * half);
+			for (int start = 0; start < size; start += 2 * half) {
+				for (int k = 0, w = 0; k < half; k++, w += step) {
+					double wr = cos[w];
+					double wi = sign * sin[w];
+					int a = start + k;
+					int b = a + half;
+					double tr = re[b] * wr - im[b] * wi;
+					double ti = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package vsa;
+
+import java.util.Arrays;
+
+/****************************************************************************
+ * Klasa HilbertTransform
+ *
+ * Amplituda i częstotliwość chwilowa funkcji IMF wyznaczane z sygnału
+ * analitycznego (transformata Hilberta). Sygnał jest dopełniany do potęgi
+ * liczby 2 swoim odbiciem zwierciadlanym, widmo jest liczone rzeczywistą
+ * transformatą Fouriera (FastFourierTransform.forwardReal()), prążki o
+ * ujemnych częstotliwościach są zerowane, a dodatnie podwajane, po czym
+ * transformata odwrotna daje sygnał analityczny. Koszt wynosi O(N log N), a
+ * tablice współczynników obrotu są współdzielone przez wszystkie obliczenia
+ * danego rozmiaru.
+ *
+ * W odróżnieniu od avgerageFrequency() (jedna częstotliwość dla całej
+ * funkcji, z liczby miejsc zerowych) wynikiem jest przebieg częstotliwości
+ * w czasie, próbka po próbce. Na początku i na końcu sygnału (ok. jeden
+ * okres) wartości są mniej wiarygodne, bo transformata traktuje sygnał jako
+ * okresowy.
+ *
+ ****************************************************************************
+ */
+class HilbertTransform {
+
+	/**
+	 * Amplituda chwilowa kolejnych próbek
+	 */
+	private final float[] amplitude;
+
+	/**
+	 * Częstotliwość chwilowa kolejnych próbek w Hz
+	 */
+	private final float[] frequency;
+
+	/**
+	 * Częstotliwość próbkowania sygnału
+	 */
+	private final float sampleRate;
+
+	/**
+	 * Konstruktor. Wyznacza amplitudę i częstotliwość chwilową.
+	 *
+	 * @param samples
+	 *            funkcja IMF
+	 * @param sampleRate
+	 *            częstotliwość próbkowania funkcji
+	 */
+	HilbertTransform(float[] samples, float sampleRate) {
+		final int length = samples.length;
+		if (length < 2)
+			throw new IllegalArgumentException("Signal too short for Hilbert transform: " + length);
+		this.sampleRate = sampleRate;
+
+		FastFourierTransform fft = FastFourierTransform.forSize(FastFourierTransform.nextPowerOfTwo(length));
+		final int size = fft.getSize();
+		final int half = size >> 1;
+		double[] re = new double[size];
+		double[] im = new double[size];
+		fft.forwardReal(pad(samples, size), size, re, im);
+
+		// widmo sygnału analitycznego: składowa stała i prążek Nyquista bez
+		// zmian, częstotliwości dodatnie podwojone, ujemne wyzerowane
+		for (int k = 1; k < half; k++) {
+			re[k] *= 2;
+			im[k] *= 2;
+		}
+		for (int k = half + 1; k < size; k++) {
+			re[k] = 0;
+			im[k] = 0;
+		}
+		fft.inverse(re, im);
+
+		amplitude = new float[length];
+		for (int i = 0; i < length; i++)
+			amplitude[i] = (float) Math.hypot(re[i], im[i]);
+
+		// częstotliwość z przyrostu fazy między sąsiednimi próbkami -
+		// argument iloczynu z[i+1] * sprzężenie(z[i-1]) nie wymaga
+		// rozwijania fazy
+		frequency = new float[length];
+		final double scale = sampleRate / (2 * Math.PI);
+		for (int i = 0; i < length; i++) {
+			int previous = Math.max(i - 1, 0);
+			int next = Math.min(i + 1, length - 1);
+			double dr = re[next] * re[previous] + im[next] * im[previous];
+			double di = im[next] * re[previous] - re[next] * im[previous];
+			frequency[i] = (float) (scale * Math.atan2(di, dr) / (next - previous));
+		}
+	}
+
+	/**
+	 * Dopełnienie sygnału do rozmiaru transformaty jego odbiciem
+	 * zwierciadlanym względem ostatniej próbki, które w odróżnieniu od
+	 * dopełnienia zerami nie wprowadza skoku wartości na końcu sygnału. Dla
+	 * dopełnienia dłuższego niż sygnał odbicia są powtarzane.
+	 */
+	private static float[] pad(float[] samples, int size) {
+		final int length = samples.length;
+		if (length == size)
+			return samples;
+		float[] padded = Arrays.copyOf(samples, size);
+		final int period = 2 * (length - 1);
+		for (int i = length; i < size; i++) {
+			int j = i % period;
+			padded[i] = samples[(j < length) ? j : period - j];
+		}
+		return padded;
+	}
+
+	/**
+	 * Zwraca liczbę próbek.
+	 */
+	int getLength() {
+		return amplitude.length;
+	}
+
+	/**
+	 * Zwraca częstotliwość próbkowania.
+	 */
+	float getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Zwraca amplitudę chwilową kolejnych próbek. Tablica nie jest kopiowana.
+	 */
+	float[] getAmplitude() {
+		return amplitude;
+	}
+
+	/**
+	 * Zwraca częstotliwość chwilową kolejnych próbek w Hz. Tablica nie jest
+	 * kopiowana.
+	 */
+	float[] getFrequency() {
+		return frequency;
+	}
+
+	/**
+	 * Średnia częstotliwość w podanym zakresie próbek, ważona kwadratem
+	 * amplitudy, żeby fragmenty o małej amplitudzie (w których faza jest
+	 * niestabilna) nie zaburzały wyniku.
+	 *
+	 * @param from
+	 *            indeks pierwszej próbki
+	 * @param to
+	 *            indeks za ostatnią próbką
+	 * @return średnia częstotliwość albo 0, jeżeli amplituda w zakresie jest
+	 *         zerowa
+	 */
+	float meanFrequency(int from, int to) {
+		if (from < 0 || to > frequency.length || from >= to)
+			throw new IndexOutOfBoundsException("Invalid range: " + from + ".." + to + ", length " + frequency.length);
+		double sum = 0, weights = 0;
+		for (int i = from; i < to; i++) {
+			double weight = (double) amplitude[i] * amplitude[i];
+			sum += weight * frequency[i];
+			weights += weight;
+		}
+		return (weights > 0) ? (float) (sum / weights) : 0F;
+	}
+
+	/**
+	 * Przebieg częstotliwości w kolejnych, rozłącznych oknach. Reszta
+	 * sygnału krótsza niż pół okna jest dołączana do ostatniego okna, żeby
+	 * wynik nie zależał od kilku próbek na końcu sygnału.
+	 *
+	 * @param windowSeconds
+	 *            długość okna w sekundach
+	 * @return średnia częstotliwość w każdym oknie (meanFrequency())
+	 */
+	float[] frequencyTrack(float windowSeconds) {
+		int window = Math.max(1, Math.round(windowSeconds * sampleRate));
+		final int length = frequency.length;
+		float[] track = new float[Math.max(1, Math.round(length / (float) window))];
+		for (int w = 0; w < track.length; w++)
+			track[w] = meanFrequency(w * window, (w == track.length - 1) ? length : (w + 1) * window);
+		return track;
+	}
+}
@@ -0,0 +1,47 @@
+package vsa;
+
+/****************************************************
+ * Klasa IMFFunction
+ * 
+ * klasa przechowuj�ca wyliczon� funkcj� IMF.
+ * 
+ ****************************************************
+ */
+class IMFFunction {
+	/**
+	 * Funkcja IMF w postaci tablicy float
+	 */
+	float[] samples;
+	/**
+	 * Cz�stotliwo�� funkcji IMF
+	 */
+	float freq;
+	/**
+	 * Liczba iteracji przesiewania, po których otrzymano funkcję IMF
+	 */
+	int siftCount;
+
+	/**
+	 * Konstruktor 1. Domy�lnie ustawia cz�stotliwo�� jako 0.
+	 * 
+	 * @param size
+	 *            rozmiar funkcji IMF
+	 */
+	IMFFunction(int size) {
+		samples = new float[size];
+		freq = 0;
+	}
+
+	/**
+	 * Konstruktor 2.
+	 * 
+	 * @param samples
+	 *            funkcja IMF w postaci tablicy float
+	 * @param freq
+	 *            wyliczona cz�stotliwo��
+	 */
+	IMFFunction(float[] samples, float freq) {
+		this.samples = samples;
+		this.freq = freq;
+	}
+}
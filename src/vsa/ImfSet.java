@@ -0,0 +1,261 @@
+package vsa;
+
+import java.util.Arrays;
+
+/****************************************************************************
+ * Klasa ImfSet
+ *
+ * Wynik dekompozycji EMD: kolejne funkcje IMF z ich częstotliwościami i
+ * liczbami iteracji przesiewania. Próbki funkcji są przechowywane w jednej
+ * ciągłej tablicy (macierz zapisana wierszami, wiersz k zaczyna się od
+ * indeksu getOffset(k)), a nie w osobnej tablicy dla każdej funkcji.
+ *
+ * Zakres przechowywanych próbek określa polityka ImfRetention:
+ *
+ * - ALL: wszystkie funkcje IMF, pamięć rośnie z liczbą funkcji,
+ *
+ * - BEST_MATCH: tylko funkcja najbliższa częstotliwości mikrodrżenia, jeden
+ * wiersz niezależnie od liczby funkcji,
+ *
+ * - FREQUENCIES_ONLY: same częstotliwości i liczby iteracji, bez próbek.
+ *
+ * Częstotliwości i liczby iteracji są przechowywane dla wszystkich funkcji.
+ *
+ ****************************************************************************
+ */
+class ImfSet {
+
+	/**
+	 * Początkowa liczba wierszy macierzy przy przechowywaniu wszystkich
+	 * funkcji
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * Liczba próbek każdej funkcji IMF
+	 */
+	private final int length;
+
+	/**
+	 * Polityka przechowywania próbek
+	 */
+	private final Analysis.ImfRetention retention;
+
+	/**
+	 * Próbki przechowywanych funkcji, wiersz po wierszu
+	 */
+	private float[] data;
+
+	/**
+	 * Częstotliwości kolejnych funkcji
+	 */
+	private float[] frequencies = new float[INITIAL_CAPACITY];
+
+	/**
+	 * Liczby iteracji przesiewania kolejnych funkcji
+	 */
+	private int[] siftCounts = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Liczba funkcji
+	 */
+	private int count = 0;
+
+	/**
+	 * Numer funkcji przechowywanej przy polityce BEST_MATCH
+	 */
+	private int best = -1;
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param length
+	 *            liczba próbek każdej funkcji IMF
+	 * @param retention
+	 *            polityka przechowywania próbek
+	 */
+	ImfSet(int length, Analysis.ImfRetention retention) {
+		this(length, retention, INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param length
+	 *            liczba próbek każdej funkcji IMF
+	 * @param retention
+	 *            polityka przechowywania próbek
+	 * @param capacity
+	 *            przewidywana liczba funkcji, dla której od razu jest
+	 *            rezerwowana pamięć przy przechowywaniu wszystkich funkcji
+	 */
+	ImfSet(int length, Analysis.ImfRetention retention, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		this.length = length;
+		this.retention = retention;
+		if (retention == Analysis.ImfRetention.ALL)
+			data = new float[capacity * length];
+		else if (retention == Analysis.ImfRetention.BEST_MATCH)
+			data = new float[length];
+	}
+
+	/**
+	 * Dodanie kolejnej funkcji IMF. Próbki są kopiowane, jeżeli pozwala na
+	 * to polityka przechowywania, więc tablica może być dalej używana.
+	 *
+	 * @param samples
+	 *            próbki funkcji, co najmniej length
+	 * @param freq
+	 *            częstotliwość funkcji
+	 * @param siftCount
+	 *            liczba iteracji przesiewania
+	 */
+	void add(float[] samples, float freq, int siftCount) {
+		if (count == frequencies.length) {
+			frequencies = Arrays.copyOf(frequencies, 2 * count);
+			siftCounts = Arrays.copyOf(siftCounts, 2 * count);
+		}
+
+		if (retention == Analysis.ImfRetention.ALL) {
+			if ((count + 1) * length > data.length)
+				data = Arrays.copyOf(data, 2 * Math.max(count, 1) * length);
+			System.arraycopy(samples, 0, data, count * length, length);
+		} else if (retention == Analysis.ImfRetention.BEST_MATCH) {
+			if (best < 0 || isCloser(freq, frequencies[best])) {
+				System.arraycopy(samples, 0, data, 0, length);
+				best = count;
+			}
+		}
+
+		frequencies[count] = freq;
+		siftCounts[count] = siftCount;
+		count++;
+	}
+
+	/**
+	 * Usunięcie wszystkich funkcji, pamięć jest zachowywana do ponownego
+	 * użycia.
+	 */
+	void clear() {
+		count = 0;
+		best = -1;
+	}
+
+	/**
+	 * Zwraca liczbę funkcji IMF.
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Sprawdzenie, czy nie ma żadnej funkcji IMF.
+	 */
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Zwraca liczbę próbek każdej funkcji.
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Zwraca politykę przechowywania próbek.
+	 */
+	Analysis.ImfRetention getRetention() {
+		return retention;
+	}
+
+	/**
+	 * Zwraca częstotliwość funkcji o podanym numerze.
+	 */
+	float getFrequency(int k) {
+		checkIndex(k);
+		return frequencies[k];
+	}
+
+	/**
+	 * Zwraca liczbę iteracji przesiewania funkcji o podanym numerze.
+	 */
+	int getSiftCount(int k) {
+		checkIndex(k);
+		return siftCounts[k];
+	}
+
+	/**
+	 * Zwraca liczby iteracji przesiewania wszystkich funkcji.
+	 */
+	int[] getSiftCounts() {
+		return Arrays.copyOf(siftCounts, count);
+	}
+
+	/**
+	 * Sprawdzenie, czy próbki funkcji o podanym numerze są przechowywane.
+	 */
+	boolean hasSamples(int k) {
+		checkIndex(k);
+		return retention == Analysis.ImfRetention.ALL || k == best;
+	}
+
+	/**
+	 * Zwraca tablicę z próbkami przechowywanych funkcji. Tablica może zostać
+	 * zamieniona przy dodaniu kolejnej funkcji.
+	 */
+	float[] getData() {
+		return data;
+	}
+
+	/**
+	 * Zwraca indeks pierwszej próbki funkcji w tablicy getData().
+	 *
+	 * @param k
+	 *            numer funkcji
+	 * @return indeks pierwszej próbki
+	 */
+	int getOffset(int k) {
+		if (!hasSamples(k))
+			throw new IllegalStateException("Samples of IMF " + k + " are not retained (" + retention + ")");
+		return (retention == Analysis.ImfRetention.ALL) ? k * length : 0;
+	}
+
+	/**
+	 * Zwraca kopię próbek funkcji o podanym numerze.
+	 */
+	float[] getSamples(int k) {
+		int offset = getOffset(k);
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	/**
+	 * Znalezienie funkcji najbliższej częstotliwości mikrodrżenia. Przy
+	 * równych odległościach wybierana jest funkcja o niższym numerze.
+	 *
+	 * @return numer funkcji albo -1, jeżeli nie ma żadnej funkcji
+	 */
+	int findClosest() {
+		if (best >= 0)
+			return best;
+		int closest = -1;
+		for (int k = 0; k < count; k++)
+			if (closest < 0 || isCloser(frequencies[k], frequencies[closest]))
+				closest = k;
+		return closest;
+	}
+
+	/**
+	 * Sprawdzenie, czy pierwsza częstotliwość jest bliższa częstotliwości
+	 * mikrodrżenia niż druga.
+	 */
+	private static boolean isCloser(float freq, float other) {
+		return Math.abs(Analysis.MICROTREMOR_FREQUENCY - freq) < Math.abs(Analysis.MICROTREMOR_FREQUENCY - other);
+	}
+
+	private void checkIndex(int k) {
+		if (k < 0 || k >= count)
+			throw new IndexOutOfBoundsException("IMF " + k + ", size " + count);
+	}
+}
@@ -0,0 +1,109 @@
+package vsa;
+
+import java.util.Arrays;
+
+/****************************************************************************
+ * Klasa IntList
+ *
+ * Rozszerzalna lista liczb całkowitych typu int, przechowywanych bez
+ * opakowywania w obiekty Integer. Służy do zapamiętywania położenia ekstremów
+ * i miejsc zerowych sygnału. Wyczyszczenie listy nie zwalnia bufora, dzięki
+ * czemu lista może być używana wielokrotnie bez kolejnych alokacji.
+ *
+ ****************************************************************************
+ */
+class IntList {
+
+	/**
+	 * Bufor z elementami listy
+	 */
+	private int[] elements;
+	/**
+	 * Liczba elementów listy
+	 */
+	private int size;
+
+	/**
+	 * Konstruktor domyślny
+	 */
+	IntList() {
+		this(16);
+	}
+
+	/**
+	 * Konstruktor
+	 *
+	 * @param initialCapacity
+	 *            początkowy rozmiar bufora
+	 */
+	IntList(int initialCapacity) {
+		elements = new int[Math.max(initialCapacity, 1)];
+		size = 0;
+	}
+
+	/**
+	 * Dodanie elementu na koniec listy
+	 *
+	 * @param value
+	 *            dodawana wartość
+	 */
+	void add(int value) {
+		if (size == elements.length)
+			elements = Arrays.copyOf(elements, elements.length + (elements.length >> 1) + 1);
+		elements[size++] = value;
+	}
+
+	/**
+	 * Zwraca element o podanym indeksie
+	 *
+	 * @param index
+	 *            indeks elementu
+	 * @return wartość elementu
+	 */
+	int get(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		return elements[index];
+	}
+
+	/**
+	 * Zmienia wartość elementu o podanym indeksie
+	 *
+	 * @param index
+	 *            indeks elementu
+	 * @param value
+	 *            nowa wartość elementu
+	 */
+	void set(int index, int value) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		elements[index] = value;
+	}
+
+	/**
+	 * Zwraca liczbę elementów listy
+	 *
+	 * @return liczba elementów
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Usunięcie wszystkich elementów listy. Bufor pozostaje zaalokowany.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Zwraca bufor z elementami listy. Znaczenie mają tylko elementy o
+	 * indeksach mniejszych niż size(). Bufor może się zmienić po dodaniu
+	 * kolejnego elementu.
+	 *
+	 * @return bufor z elementami listy
+	 */
+	int[] array() {
+		return elements;
+	}
+}
@@ -0,0 +1,45 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa LinearInterpolator
+ *
+ * Interpolacja liniowa między węzłami - najtańsza obwiednia, jedno mnożenie
+ * na próbkę i bez buforów pomocniczych. Obwiednia jest łamaną, więc średnia
+ * z obwiedni ma załamania w położeniach ekstremów, a przesiewanie zwykle
+ * wymaga więcej iteracji. Przeznaczona do przebiegów, w których liczy się
+ * szybkość, a nie kształt funkcji IMF (przebiegi zgrubne, analiza na
+ * bieżąco).
+ *
+ ****************************************************************************
+ */
+class LinearInterpolator extends PiecewiseCubicInterpolator {
+
+	@Override
+	void coefficients(int[] x, int nrOfKnots, float[] samples, CancellationCheck cancellation) {
+		final int n = nrOfKnots - 1;
+		for (int j = 0; j < n; j++)
+			b[j] = (samples[x[j + 1]] - samples[x[j]]) / (x[j + 1] - x[j]);
+	}
+
+	@Override
+	void evaluate(int[] x, int nrOfKnots, float[] samples, float[] interpolated, int length,
+			CancellationCheck cancellation) throws AnalysisInterruptedException {
+		final int n = nrOfKnots - 1;
+
+		int i = 0;
+		int nextCheck = CHECK_INTERVAL;
+		for (int j = 0; j < n; j++) {
+			if (i >= nextCheck) {
+				checkCancellation(cancellation);
+				nextCheck = i + CHECK_INTERVAL;
+			}
+
+			int end = (j == n - 1) ? length : Math.min(x[j + 1], length);
+			float y = samples[x[j]];
+			float bj = b[j];
+			int origin = x[j];
+			for (; i < end; i++)
+				interpolated[i] = y + (i - origin) * bj;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package vsa;
+
+import java.util.Arrays;
+
+import vsa.Analysis.AnalysisState;
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa LiveAnalysis
+ *
+ * Analiza mikrodrżenia na bieżąco, w trakcie nagrywania. Kolejne bufory z
+ * wątku nagrywania (Player.Capture) są zamieniane na próbki, filtrowane i
+ * decymowane strumieniowo (StreamingLowPassFilter), a wynik trafia do bufora
+ * cyklicznego przechowującego ostatnie kilka sekund sygnału. Przetwarzanie w
+ * wątku nagrywania kosztuje kilkanaście mnożeń na próbkę, więc nie opóźnia
+ * odczytu z linii.
+ *
+ * Osobny wątek co zadany odstęp czasu wykonuje algorytm EMD na ostatnim oknie
+ * sygnału i przekazuje słuchaczowi funkcję najbliższą mikrodrżeniu razem z
+ * decyzją. Bufory robocze EMD są wykorzystywane ponownie w kolejnych
+ * aktualizacjach. Opóźnienie wyniku jest ograniczone przez odstęp aktualizacji
+ * i czas jednej dekompozycji okna; jeżeli dekompozycja trwa dłużej niż odstęp,
+ * pośrednie aktualizacje są pomijane, a nie kolejkowane.
+ *
+ ****************************************************************************
+ */
+class LiveAnalysis implements Player.CaptureListener {
+
+	/**
+	 * Domyślna długość analizowanego okna w sekundach
+	 */
+	static final float DEFAULT_WINDOW_SECONDS = 5F;
+
+	/**
+	 * Domyślny odstęp między kolejnymi aktualizacjami w milisekundach
+	 */
+	static final long DEFAULT_UPDATE_INTERVAL = 500;
+
+	/**
+	 * Minimalna długość sygnału w sekundach, od której są wyliczane wyniki
+	 */
+	static final float MIN_SECONDS = 2F;
+
+	/****************************************************************
+	 * Interfejs Listener
+	 *
+	 * Odbiorca kolejnych wyników analizy
+	 *
+	 ****************************************************************
+	 */
+	interface Listener {
+		/**
+		 * Nowy wynik analizy. Metoda jest wywoływana z wątku analizy.
+		 *
+		 * @param function
+		 *            funkcja najbliższa mikrodrżeniu w ostatnim oknie
+		 * @param time
+		 *            czas nagrania w sekundach, do którego sięga okno
+		 */
+		void microtremorUpdated(MicrotremorFunction function, float time);
+	}
+
+	/**
+	 * Analiza wykonująca algorytm EMD, jej bufory robocze są wykorzystywane
+	 * ponownie w kolejnych aktualizacjach
+	 */
+	private final Analysis analysis;
+
+	/**
+	 * Filtr dolnoprzepustowy z decymacją
+	 */
+	private final StreamingLowPassFilter filter;
+
+	/**
+	 * Bufor cykliczny z ostatnimi próbkami po decymacji
+	 */
+	private final float[] window;
+
+	/**
+	 * Indeks w buforze, pod którym zostanie zapisana następna próbka
+	 */
+	private int position = 0;
+
+	/**
+	 * Liczba próbek po decymacji od początku nagrania
+	 */
+	private long samplesCount = 0;
+
+	/**
+	 * Obiekt do synchronizacji dostępu do bufora
+	 */
+	private final Object windowLock = new Object();
+
+	/**
+	 * Odstęp między aktualizacjami w milisekundach
+	 */
+	private final long updateInterval;
+
+	/**
+	 * Odbiorca wyników
+	 */
+	private final Listener listener;
+
+	/**
+	 * Wątek analizy
+	 */
+	private Thread thread = null;
+
+	/**
+	 * Czy analiza jest uruchomiona
+	 */
+	private volatile boolean running = false;
+
+	/**
+	 * Konstruktor z domyślną długością okna i odstępem aktualizacji.
+	 *
+	 * @param listener
+	 *            odbiorca wyników
+	 */
+	LiveAnalysis(Listener listener) {
+		this(listener, DEFAULT_WINDOW_SECONDS, DEFAULT_UPDATE_INTERVAL);
+	}
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param listener
+	 *            odbiorca wyników
+	 * @param windowSeconds
+	 *            długość analizowanego okna w sekundach
+	 * @param updateInterval
+	 *            odstęp między aktualizacjami w milisekundach
+	 */
+	LiveAnalysis(Listener listener, float windowSeconds, long updateInterval) {
+		if (windowSeconds < MIN_SECONDS || updateInterval <= 0)
+			throw new IllegalArgumentException("Invalid window (" + windowSeconds + " s) or update interval ("
+					+ updateInterval + " ms)");
+		this.listener = listener;
+		this.updateInterval = updateInterval;
+		analysis = new Analysis();
+		filter = new StreamingLowPassFilter(analysis.getDecimationFactor());
+		window = new float[Math.round(windowSeconds * analysis.getAnalysisSampleRate())];
+	}
+
+	/**
+	 * Uruchomienie wątku analizy.
+	 */
+	void start() {
+		if (running)
+			return;
+		running = true;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				analyse();
+			}
+		});
+		thread.setName("LiveAnalysis");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Zatrzymanie analizy. Przerywa trwającą dekompozycję i czeka na
+	 * zakończenie wątku, po powrocie słuchacz nie otrzyma już wyników.
+	 */
+	void stop() {
+		if (!running)
+			return;
+		running = false;
+		analysis.setAnalysisState(AnalysisState.INTERRUPTING);
+		synchronized (windowLock) {
+			windowLock.notifyAll();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Debug.debug(e.toString());
+		}
+		thread = null;
+	}
+
+	/**
+	 * Przyjęcie kolejnego bufora z nagrania: konwersja na próbki, filtracja z
+	 * decymacją i zapis do bufora cyklicznego.
+	 */
+	@Override
+	public void audioCaptured(byte[] data, int length) {
+		process(AudioFileOperations.byteArrayIntoFloatArray(data, 0, length));
+	}
+
+	/**
+	 * Przyjęcie kolejnych próbek sygnału.
+	 *
+	 * @param samples
+	 *            próbki z pełną częstotliwością próbkowania
+	 */
+	void process(float[] samples) {
+		float[] decimated = filter.process(samples);
+
+		synchronized (windowLock) {
+			for (int i = 0; i < decimated.length; i++) {
+				window[position] = decimated[i];
+				position = (position + 1 == window.length) ? 0 : position + 1;
+			}
+			samplesCount += decimated.length;
+		}
+	}
+
+	/**
+	 * Pętla wątku analizy.
+	 */
+	private void analyse() {
+		final int minSamples = Math.round(MIN_SECONDS * analysis.getAnalysisSampleRate());
+		float[] samples = new float[window.length];
+		long analysedCount = 0;
+
+		while (running) {
+			int length;
+			long count;
+			synchronized (windowLock) {
+				try {
+					windowLock.wait(updateInterval);
+				} catch (InterruptedException e) {
+					break;
+				}
+				count = samplesCount;
+				if (!running || count < minSamples || count == analysedCount)
+					continue;
+
+				// skopiowanie okna w kolejności chronologicznej
+				length = (int) Math.min(count, window.length);
+				int start = (position - length + window.length) % window.length;
+				int first = Math.min(length, window.length - start);
+				System.arraycopy(window, start, samples, 0, first);
+				System.arraycopy(window, 0, samples, first, length - first);
+			}
+			analysedCount = count;
+
+			float[] signal = (length == samples.length) ? samples : Arrays.copyOf(samples, length);
+			analysis.setAnalysisState(AnalysisState.ANALYSING);
+			if (!running)
+				break;
+			try {
+				MicrotremorFunction function = analysis.analyseDecimated(signal);
+				if (function != null && running)
+					listener.microtremorUpdated(function, count / analysis.getAnalysisSampleRate());
+			} catch (AnalysisInterruptedException e) {
+				// zbyt mało ekstremów w oknie albo zatrzymanie analizy
+			} finally {
+				if (running)
+					analysis.setAnalysisState(AnalysisState.INACTIVITY);
+			}
+		}
+		analysis.setAnalysisState(AnalysisState.INACTIVITY);
+	}
+}
@@ -1,5 +1,7 @@
 package vsa;
 
+import java.util.concurrent.RecursiveAction;
+
 /*************************************************************************************
  * Klasa LowPassFilter
  * 
@@ -208,14 +210,91 @@ public class LowPassFilter {
 			-2.45557542337669e-08, -1.16621413750432e-08, -3.09236906250145e-09, 0 };
 
 	/**
-	 * Na�o�enie filtru dolnoprzepustowego na podan� tablic� float
+	 * Minimalna liczba próbek, od której jest używane filtrowanie z użyciem
+	 * FFT. Już dla sygnałów niewiele dłuższych od filtru metoda overlap-save
+	 * jest kilkanaście razy szybsza od bezpośredniego splotu.
+	 */
+	static final int FFT_THRESHOLD = 2 * coeff.length;
+
+	/**
+	 * Rozmiar FFT w metodzie overlap-save
+	 */
+	private static final int FFT_SIZE = FastFourierTransform.nextPowerOfTwo(4 * coeff.length);
+
+	/**
+	 * Minimalna liczba próbek, od której filtrowanie jest wykonywane
+	 * równolegle (ok. 6 s nagrania), oraz długość fragmentu przetwarzanego
+	 * przez jedno zadanie
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 18;
+	private static final int PARALLEL_CHUNK = 1 << 16;
+
+	/**
+	 * Największa liczba mnożeń na próbkę wejściową, przy której decymacja w
+	 * strukturze polifazowej jest szybsza od filtrowania z użyciem FFT
+	 */
+	private static final int POLYPHASE_MAX_TAPS = 24;
+
+	/**
+	 * Widmo współczynników filtru dla rozmiaru FFT_SIZE, wyliczane przy
+	 * pierwszym użyciu
+	 */
+	private static volatile double[][] coeffSpectrum = null;
+
+	/**
+	 * Zwraca liczbę współczynników filtru.
+	 * 
+	 * @return długość filtru
+	 */
+	public static int getLength() {
+		return coeff.length;
+	}
+
+	/**
+	 * Zwraca kopię współczynników filtru.
+	 * 
+	 * @return współczynniki filtru
+	 */
+	static double[] getCoefficients() {
+		return coeff.clone();
+	}
+
+	/**
+	 * Na�o�enie filtru dolnoprzepustowego na podan� tablic� float. Dla
+	 * długich sygnałów splot jest wyliczany metodą overlap-save z użyciem
+	 * FFT (dla bardzo długich - równolegle), dla krótkich - bezpośrednio.
+	 * Wynik różni się od wyniku filetringDirect() tylko błędami zaokrągleń
+	 * (w pomiarach najwyżej 6e-7 amplitudy sygnału). Filtr strumieniowy
+	 * StreamingLowPassFilter (analiza na żywo) jest dokładny bit po bicie
+	 * tylko względem filetringDirect(), a od wyniku tej metody i metody
+	 * filetringDecimated() (analiza pliku) różni się najwyżej o 1e-6
+	 * amplitudy sygnału.
 	 * 
 	 * @param samples
 	 *            sygna� do przefiltrowania
 	 * @return przefiltrowany sygna� w postaci tablicy float
 	 */
-
 	public static float[] filetring(float[] samples) {
+		if (samples.length >= PARALLEL_THRESHOLD && AnalysisThreadPool.getParallelism() > 1)
+			return filetringParallel(samples);
+		else if (samples.length >= FFT_THRESHOLD)
+			return filetringFFT(samples);
+		else
+			return filetringDirect(samples);
+	}
+
+	/**
+	 * Na�o�enie filtru dolnoprzepustowego bezpośrednim splotem z
+	 * współczynnikami filtru. Metoda referencyjna dla pozostałych sposobów
+	 * filtrowania. Przy wyłączonej wersji wektorowej pętli
+	 * (DspKernels.setVectorized(false)) wynik jest identyczny z pierwotną
+	 * implementacją.
+	 * 
+	 * @param samples
+	 *            sygna� do przefiltrowania
+	 * @return przefiltrowany sygna� w postaci tablicy float
+	 */
+	public static float[] filetringDirect(float[] samples) {
 
 		// je�eli sygna� jest zbyt kr�tki do filtrowania
 		if (samples.length < coeff.length)
@@ -223,26 +302,299 @@ public class LowPassFilter {
 
 		float[] filtered = new float[samples.length + coeff.length];
 
-		// wyliczenie warto�ci dla sampli od 0 do ostatniego sampla
-		for (int i = 0; i < samples.length; i++) {
-			filtered[i] = 0;
-			for (int k = 0; k < coeff.length; k++) {
-				filtered[i] += coeff[k] * samples[i - k];
-				if (i - k == 0)
-					break;
+		// rozbieg filtru - dla pierwszych sampli dostępnych jest tylko i + 1
+		// współczynników. Wydzielenie tej części usuwa sprawdzanie początku
+		// sygnału z pętli głównej
+		int i = 0;
+		for (; i < coeff.length - 1; i++)
+			filtered[i] = DspKernels.convolve(coeff, 0, i + 1, samples, i);
+
+		// wyliczenie wartości dla pozostałych sampli do ostatniego sampla
+		for (; i < samples.length; i++)
+			filtered[i] = DspKernels.convolve(coeff, 0, coeff.length, samples, i);
+
+		// pozostające sample po skończeniu sygnału - splot z ostatnimi
+		// samplami, zaczynając od współczynnika i - samples.length + 1
+		for (i = samples.length; i < samples.length + coeff.length; i++)
+			filtered[i] = DspKernels.convolve(coeff, i - samples.length + 1, coeff.length, samples,
+					samples.length - 1);
+
+		// zwr�� przefiltrowany sygna�
+		return filtered;
+	}
+
+	/**
+	 * Na�o�enie filtru dolnoprzepustowego metodą overlap-save. Wynik jest
+	 * taki sam jak w metodzie filetringDirect() z dokładnością do błędów
+	 * zaokrągleń.
+	 * 
+	 * @param samples
+	 *            sygnał do przefiltrowania
+	 * @return przefiltrowany sygnał w postaci tablicy float
+	 */
+	public static float[] filetringFFT(float[] samples) {
+
+		// jeżeli sygnał jest zbyt krótki do filtrowania
+		if (samples.length < coeff.length)
+			return null;
+
+		// ostatnia próbka pozostaje zerowa, tak jak w metodzie bezpośredniej
+		float[] filtered = new float[samples.length + coeff.length];
+
+		filterBlocks(samples, filtered, 0, samples.length + coeff.length - 1);
+
+		return filtered;
+	}
+
+	/**
+	 * Na�o�enie filtru dolnoprzepustowego metodą overlap-save z podziałem
+	 * sygnału na fragmenty przetwarzane równolegle we wspólnej puli wątków.
+	 * Każdy fragment wylicza osobny zakres próbek wyjściowych i odczytuje
+	 * coeff.length - 1 próbek wejściowych poprzedzających ten zakres. Wynik
+	 * jest identyczny z wynikiem metody filetringFFT().
+	 * 
+	 * @param samples
+	 *            sygnał do przefiltrowania
+	 * @return przefiltrowany sygnał w postaci tablicy float
+	 */
+	public static float[] filetringParallel(float[] samples) {
+
+		// jeżeli sygnał jest zbyt krótki do filtrowania
+		if (samples.length < coeff.length)
+			return null;
+
+		float[] filtered = new float[samples.length + coeff.length];
+
+		AnalysisThreadPool.get().invoke(
+				new FilteringTask(samples, filtered, 0, samples.length + coeff.length - 1));
+
+		return filtered;
+	}
+
+	/**
+	 * Zadanie filtrujące zakres próbek wyjściowych. Zakres jest dzielony na
+	 * połowy, dopóki nie jest krótszy niż PARALLEL_CHUNK. Granice podziału są
+	 * wielokrotnościami długości pary bloków metody overlap-save, dzięki
+	 * czemu wynik nie zależy od podziału.
+	 */
+	@SuppressWarnings("serial")
+	private static class FilteringTask extends RecursiveAction {
+
+		private final float[] samples;
+		private final float[] filtered;
+		private final int from;
+		private final int to;
+
+		FilteringTask(float[] samples, float[] filtered, int from, int to) {
+			this.samples = samples;
+			this.filtered = filtered;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			final int pair = 2 * (FFT_SIZE - coeff.length + 1);
+			int pairs = (to - from + pair - 1) / pair;
+			if (to - from <= PARALLEL_CHUNK || pairs < 2) {
+				filterBlocks(samples, filtered, from, to);
+				return;
 			}
+			int middle = from + (pairs / 2) * pair;
+			invokeAll(new FilteringTask(samples, filtered, from, middle),
+					new FilteringTask(samples, filtered, middle, to));
 		}
+	}
+
+	/**
+	 * Wyliczenie metodą overlap-save próbek wyjściowych o indeksach od from
+	 * do to - 1. Ponieważ współczynniki filtru są rzeczywiste, w jednej
+	 * transformacie są przetwarzane dwa bloki sygnału - jeden jako część
+	 * rzeczywista, drugi jako część urojona.
+	 */
+	private static void filterBlocks(float[] samples, float[] filtered, int from, int to) {
+		FastFourierTransform fft = FastFourierTransform.forSize(FFT_SIZE);
+		double[][] spectrum = getCoeffSpectrum();
+		double[] hRe = spectrum[0];
+		double[] hIm = spectrum[1];
 
-		// pozostaj�ce sample po sko�czeniu sygna�u
-		for (int i = samples.length; i < samples.length + coeff.length; i++) {
-			filtered[i] = 0;
-			for (int k = 0 + (i - samples.length + 1); k < coeff.length; k++) {
-				filtered[i] += coeff[k] * samples[i - k];
+		// liczba poprawnych próbek wyjściowych z jednego bloku
+		final int step = FFT_SIZE - coeff.length + 1;
+
+		double[] re = new double[FFT_SIZE];
+		double[] im = new double[FFT_SIZE];
+
+		for (int start = from; start < to; start += 2 * step) {
+			// blok dla próbek wyjściowych od start oraz od start + step
+			loadBlock(samples, start - (coeff.length - 1), re);
+			loadBlock(samples, start + step - (coeff.length - 1), im);
+
+			fft.forward(re, im);
+			for (int k = 0; k < FFT_SIZE; k++) {
+				double r = re[k] * hRe[k] - im[k] * hIm[k];
+				im[k] = re[k] * hIm[k] + im[k] * hRe[k];
+				re[k] = r;
 			}
+			fft.inverse(re, im);
 
+			// pierwsze coeff.length - 1 próbek bloku jest zniekształconych
+			// przez splot kołowy
+			for (int j = 0; j < step && start + j < to; j++)
+				filtered[start + j] = (float) re[coeff.length - 1 + j];
+			for (int j = 0; j < step && start + step + j < to; j++)
+				filtered[start + step + j] = (float) im[coeff.length - 1 + j];
 		}
+	}
 
-		// zwr�� przefiltrowany sygna�
-		return filtered;
+	/**
+	 * Na�o�enie filtru dolnoprzepustowego połączone z decymacją. Wyliczane
+	 * są tylko próbki, które pozostają po decymacji, dlatego koszt filtrowania
+	 * jest factor razy mniejszy. Przy małych współczynnikach decymacji
+	 * szybsze jest filtrowanie z użyciem FFT i późniejsza decymacja. Wynik
+	 * odpowiada wywołaniu decimate(filetring(samples), factor) z dokładnością
+	 * do błędów zaokrągleń.
+	 * 
+	 * @param samples
+	 *            sygnał do przefiltrowania
+	 * @param factor
+	 *            współczynnik decymacji
+	 * @return przefiltrowany sygnał po decymacji albo null, jeżeli sygnał
+	 *         jest zbyt krótki do filtrowania
+	 */
+	public static float[] filetringDecimated(float[] samples, int factor) {
+		if (factor < 1)
+			throw new IllegalArgumentException("Invalid decimation factor: " + factor);
+
+		// jeżeli sygnał jest zbyt krótki do filtrowania
+		if (samples.length < coeff.length)
+			return null;
+
+		if (coeff.length / factor > POLYPHASE_MAX_TAPS)
+			return decimate(filetring(samples), factor);
+
+		return decimatingConvolution(coeff, samples, factor, samples.length + coeff.length);
+	}
+
+	/**
+	 * Splot sygnału z filtrem połączony z decymacją, realizowany w strukturze
+	 * polifazowej. Filtr jest dzielony na factor faz: faza p zawiera
+	 * współczynniki h[p], h[p + factor], h[p + 2 * factor], ... i jest
+	 * splatana z podciągiem próbek x[q * factor - p]. Wyliczane są tylko
+	 * próbki wyjściowe o indeksach będących wielokrotnością factor.
+	 * 
+	 * @param h
+	 *            współczynniki filtru
+	 * @param samples
+	 *            sygnał wejściowy
+	 * @param factor
+	 *            współczynnik decymacji
+	 * @param fullLength
+	 *            długość sygnału wyjściowego przed decymacją
+	 * @return sygnał wyjściowy po decymacji
+	 */
+	static float[] decimatingConvolution(double[] h, float[] samples, int factor, int fullLength) {
+
+		// podział filtru na fazy. Zerowe współczynniki na początku i końcu
+		// fazy są pomijane, offset[p] określa indeks pierwszego pozostawionego
+		// współczynnika
+		double[][] phases = new double[factor][];
+		int[] offset = new int[factor];
+		for (int p = 0; p < factor; p++) {
+			int count = (h.length - p + factor - 1) / factor;
+			int first = 0;
+			while (first < count && h[first * factor + p] == 0)
+				first++;
+			int last = count - 1;
+			while (last >= first && h[last * factor + p] == 0)
+				last--;
+			offset[p] = first;
+			phases[p] = new double[last - first + 1];
+			for (int j = first; j <= last; j++)
+				phases[p][j - first] = h[j * factor + p];
+		}
+
+		// podział sygnału na podciągi x_p[q] = x[q * factor - p], dzięki
+		// czemu splot każdej fazy odczytuje próbki z ciągłego obszaru
+		// pamięci. Próbki spoza sygnału są zerowe.
+		final int streamLength = (samples.length + factor - 1) / factor + 1;
+		float[][] streams = new float[factor][streamLength];
+		for (int p = 0; p < factor; p++) {
+			float[] stream = streams[p];
+			for (int q = (p == 0) ? 0 : 1, i = q * factor - p; q < streamLength && i < samples.length; q++, i += factor)
+				stream[q] = samples[i];
+		}
+
+		float[] decimated = new float[(fullLength + factor - 1) / factor];
+
+		for (int m = 0; m < decimated.length; m++) {
+			double acc = 0;
+			for (int p = 0; p < factor; p++) {
+				double[] phase = phases[p];
+				float[] stream = streams[p];
+				// zakres j, dla którego indeks m - j - offset[p] mieści się w
+				// podciągu
+				int base = m - offset[p];
+				int jFirst = Math.max(0, base - streamLength + 1);
+				int jLast = Math.min(phase.length - 1, base);
+				for (int j = jFirst; j <= jLast; j++)
+					acc += phase[j] * stream[base - j];
+			}
+			decimated[m] = (float) acc;
+		}
+
+		return decimated;
+	}
+
+	/**
+	 * Decymacja sygnału - pozostawienie co factor-tej próbki. Sygnał powinien
+	 * być wcześniej przefiltrowany, tak żeby częstotliwość próbkowania po
+	 * decymacji była co najmniej dwa razy większa od częstotliwości odcięcia
+	 * filtru (400 Hz).
+	 * 
+	 * @param samples
+	 *            przefiltrowany sygnał
+	 * @param factor
+	 *            współczynnik decymacji, 1 oznacza brak decymacji
+	 * @return sygnał po decymacji
+	 */
+	public static float[] decimate(float[] samples, int factor) {
+		if (factor < 1)
+			throw new IllegalArgumentException("Invalid decimation factor: " + factor);
+		if (factor == 1)
+			return samples;
+
+		float[] decimated = new float[(samples.length + factor - 1) / factor];
+		for (int i = 0, k = 0; k < decimated.length; i += factor, k++)
+			decimated[k] = samples[i];
+
+		return decimated;
+	}
+
+	/**
+	 * Wczytanie bloku sygnału o długości FFT_SIZE zaczynającego się od
+	 * podanego indeksu. Próbki spoza sygnału są zerowe.
+	 */
+	private static void loadBlock(float[] samples, int from, double[] block) {
+		for (int j = 0; j < FFT_SIZE; j++) {
+			int i = from + j;
+			block[j] = (i >= 0 && i < samples.length) ? samples[i] : 0.0;
+		}
+	}
+
+	/**
+	 * Zwraca widmo współczynników filtru uzupełnionych zerami do rozmiaru
+	 * FFT_SIZE.
+	 */
+	private static double[][] getCoeffSpectrum() {
+		double[][] spectrum = coeffSpectrum;
+		if (spectrum == null) {
+			double[] re = new double[FFT_SIZE];
+			double[] im = new double[FFT_SIZE];
+			System.arraycopy(coeff, 0, re, 0, coeff.length);
+			FastFourierTransform.forSize(FFT_SIZE).forward(re, im);
+			spectrum = new double[][] { re, im };
+			coeffSpectrum = spectrum;
+		}
+		return spectrum;
 	}
 }
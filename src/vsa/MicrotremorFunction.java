@@ -0,0 +1,78 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa MicrotremorFunction
+ * 
+ * Klasa opisuj�ca funkcje zawieraj�c� mikrodr�enie. Zawiera pole prywatne
+ * b�d�ce decyzj� wykrycia stresu - warto�� true; oraz pola zawieraj�ce przebieg
+ * funkcji i u�rednion� cz�stotliwo��.
+ * 
+ * **************************************************************************
+ */
+class MicrotremorFunction extends IMFFunction {
+
+	/**
+	 * Zmienna okre�laj�ca czy stres zosta� wykryty
+	 */
+	private boolean stressDetected = false;
+
+	/**
+	 * Czy wynik pochodzi z analizy przerwanej po przekroczeniu limitu czasu
+	 */
+	private boolean partial = false;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param samples
+	 *            tablica przedstawiaj�ca funkcj� znajduj�c� si� najbli�ej
+	 *            mikrodr�enia
+	 * @param freq
+	 *            cz�stotliwo�� funkcji
+	 * @param stressDetected
+	 *            stwierdzenie wyst�powania stresu
+	 */
+	MicrotremorFunction(float[] samples, float freq, boolean stressDetected) {
+		this(samples, freq, stressDetected, false);
+	}
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param samples
+	 *            tablica przedstawiająca funkcję znajdującą się najbliżej
+	 *            mikrodrżenia
+	 * @param freq
+	 *            częstotliwość funkcji
+	 * @param stressDetected
+	 *            stwierdzenie występowania stresu
+	 * @param partial
+	 *            czy analiza została przerwana po przekroczeniu limitu czasu
+	 */
+	MicrotremorFunction(float[] samples, float freq, boolean stressDetected, boolean partial) {
+		super(samples, freq);
+		this.stressDetected = stressDetected;
+		this.partial = partial;
+	}
+
+	/**
+	 * Zwraca informacje czy w danej funkcji stwierdzono wyst�powanie stresu.
+	 * 
+	 * @return zmienna typu boolean okre�laj�ca wyst�powanie stresu
+	 */
+	public boolean getDecision() {
+		return stressDetected;
+	}
+
+	/**
+	 * Zwraca informację, czy wynik jest przybliżeniem z analizy przerwanej
+	 * po przekroczeniu limitu czasu. Funkcja jest wtedy wybierana spośród
+	 * funkcji IMF wyznaczonych do tej pory, a ostatnia z nich mogła nie
+	 * zostać przesiana do końca.
+	 * 
+	 * @return true dla wyniku częściowego
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+}
@@ -0,0 +1,13 @@
+package vsa;
+
+/**
+ * Source of consecutive noise samples.
+ **/
+public interface NoiseGenerator {
+
+	/**
+	 * Returns the next output value of the noise generator.
+	 */
+	double getNext();
+
+}
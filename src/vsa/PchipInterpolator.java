@@ -0,0 +1,76 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa PchipInterpolator
+ *
+ * Interpolacja Hermite'a trzeciego stopnia zachowująca monotoniczność
+ * (PCHIP, metoda Fritscha-Carlsona). Pochodna w węźle jest średnią
+ * harmoniczną ważoną nachyleń sąsiednich przedziałów, a w lokalnych
+ * ekstremach danych wynosi zero, więc obwiednia nie przestrzeliwuje między
+ * węzłami. Współczynniki są liczone lokalnie, bez rozwiązywania układu
+ * równań, ale obwiednia ma ciągłą tylko pierwszą pochodną.
+ *
+ ****************************************************************************
+ */
+class PchipInterpolator extends PiecewiseCubicInterpolator {
+
+	@Override
+	void coefficients(int[] x, int nrOfKnots, float[] samples, CancellationCheck cancellation)
+			throws AnalysisInterruptedException {
+		final int n = nrOfKnots - 1;
+
+		// nachylenia przedziałów, tymczasowo w tablicy d
+		for (int j = 0; j < n; j++)
+			d[j] = (samples[x[j + 1]] - samples[x[j]]) / (x[j + 1] - x[j]);
+
+		// pochodne w węzłach wewnętrznych (w tablicy b)
+		for (int k = 1; k < n; k++) {
+			if ((k & (CHECK_INTERVAL - 1)) == 0)
+				checkCancellation(cancellation);
+			float previous = d[k - 1];
+			float next = d[k];
+			if (previous * next <= 0) {
+				b[k] = 0;
+			} else {
+				float hPrev = x[k] - x[k - 1];
+				float h = x[k + 1] - x[k];
+				float w1 = 2F * h + hPrev;
+				float w2 = h + 2F * hPrev;
+				b[k] = (w1 + w2) / (w1 / previous + w2 / next);
+			}
+		}
+
+		// pochodne na krańcach - wzór trzypunktowy z zachowaniem kształtu
+		b[0] = endSlope(x[1] - x[0], x[2] - x[1], d[0], d[1]);
+		b[n] = endSlope(x[n] - x[n - 1], x[n - 1] - x[n - 2], d[n - 1], d[n - 2]);
+
+		// współczynniki wielomianów Hermite'a
+		for (int j = 0; j < n; j++) {
+			float h = x[j + 1] - x[j];
+			float slope = d[j];
+			c[j] = (3F * slope - 2F * b[j] - b[j + 1]) / h;
+			d[j] = (b[j] + b[j + 1] - 2F * slope) / (h * h);
+		}
+	}
+
+	/**
+	 * Pochodna w skrajnym węźle.
+	 *
+	 * @param h0
+	 *            długość skrajnego przedziału
+	 * @param h1
+	 *            długość przedziału sąsiedniego
+	 * @param delta0
+	 *            nachylenie skrajnego przedziału
+	 * @param delta1
+	 *            nachylenie przedziału sąsiedniego
+	 */
+	private static float endSlope(float h0, float h1, float delta0, float delta1) {
+		float slope = ((2F * h0 + h1) * delta0 - h0 * delta1) / (h0 + h1);
+		if (slope * delta0 <= 0)
+			return 0;
+		if (delta0 * delta1 < 0 && Math.abs(slope) > Math.abs(3F * delta0))
+			return 3F * delta0;
+		return slope;
+	}
+}
@@ -0,0 +1,150 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa PiecewiseCubicInterpolator
+ *
+ * Wspólna część interpolacji wielomianami trzeciego stopnia w przedziałach
+ * między węzłami. Podklasy wyznaczają współczynniki wielomianów
+ * s(t) = y + b*dt + c*dt^2 + d*dt^3 w kolejnych przedziałach, a obwiednia
+ * jest wyliczana przechodząc kolejno po przedziałach, bez wyszukiwania
+ * przedziału dla każdej próbki.
+ *
+ * Obliczenia dla długich sygnałów można przerwać - co CHECK_INTERVAL węzłów
+ * albo próbek jest sprawdzany podany CancellationCheck.
+ *
+ ****************************************************************************
+ */
+abstract class PiecewiseCubicInterpolator implements EnvelopeInterpolator {
+
+	/**
+	 * Liczba węzłów albo próbek między kolejnymi sprawdzeniami przerwania,
+	 * potęga liczby 2
+	 */
+	static final int CHECK_INTERVAL = 4096;
+
+	/**
+	 * Współczynniki wielomianów w kolejnych przedziałach:
+	 * s(t) = y + b*dt + c*dt^2 + d*dt^3
+	 */
+	float[] b = new float[0];
+	float[] c = new float[0];
+	float[] d = new float[0];
+
+	/**
+	 * Interpolacja sygnału na podstawie podanych węzłów, bez możliwości
+	 * przerwania obliczeń.
+	 *
+	 * @param knots
+	 *            rosnące indeksy próbek będące węzłami interpolacji
+	 * @param nrOfKnots
+	 *            liczba węzłów, co najmniej 3
+	 * @param samples
+	 *            sygnał, z którego są pobierane wartości w węzłach
+	 * @param interpolated
+	 *            bufor, do którego jest zapisywany wynik interpolacji
+	 * @param length
+	 *            liczba próbek do wyliczenia
+	 */
+	void interpolate(int[] knots, int nrOfKnots, float[] samples, float[] interpolated, int length) {
+		try {
+			interpolate(knots, nrOfKnots, samples, interpolated, length, null);
+		} catch (AnalysisInterruptedException e) {
+			// bez CancellationCheck obliczenia nie są przerywane
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void interpolate(int[] knots, int nrOfKnots, float[] samples, float[] interpolated, int length,
+			CancellationCheck cancellation) throws AnalysisInterruptedException {
+		if (nrOfKnots < 3)
+			throw new IllegalArgumentException("At least 3 knots are required: " + nrOfKnots);
+
+		ensureCapacity(nrOfKnots);
+		coefficients(knots, nrOfKnots, samples, cancellation);
+		evaluate(knots, nrOfKnots, samples, interpolated, length, cancellation);
+	}
+
+	/**
+	 * Wyznaczenie współczynników b, c, d wielomianów w przedziałach między
+	 * kolejnymi węzłami.
+	 *
+	 * @param x
+	 *            rosnące indeksy próbek będące węzłami
+	 * @param nrOfKnots
+	 *            liczba węzłów
+	 * @param samples
+	 *            sygnał, z którego są pobierane wartości w węzłach
+	 * @param cancellation
+	 *            sprawdzenie przerwania obliczeń albo null
+	 * @throws AnalysisInterruptedException
+	 *             obliczenia zostały przerwane
+	 */
+	abstract void coefficients(int[] x, int nrOfKnots, float[] samples, CancellationCheck cancellation)
+			throws AnalysisInterruptedException;
+
+	/**
+	 * Wyliczenie wartości funkcji dla próbek od 0 do length - 1. Próbki
+	 * leżące przed pierwszym albo za ostatnim węzłem są ekstrapolowane
+	 * wielomianem skrajnego przedziału.
+	 */
+	void evaluate(int[] x, int nrOfKnots, float[] samples, float[] interpolated, int length,
+			CancellationCheck cancellation) throws AnalysisInterruptedException {
+		final int n = nrOfKnots - 1;
+
+		int i = 0;
+		int nextCheck = CHECK_INTERVAL;
+		for (int j = 0; j < n; j++) {
+			if (i >= nextCheck) {
+				checkCancellation(cancellation);
+				nextCheck = i + CHECK_INTERVAL;
+			}
+
+			// ostatni przedział obejmuje również ostatni węzeł i dalsze
+			// próbki
+			int end = (j == n - 1) ? length : Math.min(x[j + 1], length);
+			float y = samples[x[j]];
+			float bj = b[j];
+			float cj = c[j];
+			float dj = d[j];
+			int origin = x[j];
+			for (; i < end; i++) {
+				float dt = i - origin;
+				interpolated[i] = y + dt * (bj + dt * (cj + dt * dj));
+			}
+		}
+	}
+
+	/**
+	 * Zgłoszenie wyjątku, jeżeli obliczenia zostały przerwane.
+	 */
+	static void checkCancellation(CancellationCheck cancellation) throws AnalysisInterruptedException {
+		if (cancellation != null && cancellation.isCancelled())
+			throw new AnalysisInterruptedException();
+	}
+
+	/**
+	 * Zapewnienie odpowiedniego rozmiaru buforów roboczych.
+	 */
+	private void ensureCapacity(int nrOfKnots) {
+		if (nrOfKnots <= c.length)
+			return;
+
+		// zapas, żeby nie alokować przy każdym niewielkim wzroście
+		int size = Math.max(nrOfKnots, c.length + (c.length >> 1));
+		b = new float[size];
+		c = new float[size];
+		d = new float[size];
+		allocate(size);
+	}
+
+	/**
+	 * Alokacja dodatkowych buforów roboczych podklasy dla podanej liczby
+	 * węzłów.
+	 *
+	 * @param size
+	 *            liczba węzłów, którą muszą pomieścić bufory
+	 */
+	void allocate(int size) {
+	}
+}
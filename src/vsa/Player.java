@@ -62,6 +62,29 @@ public class Player {
 
 	static final int BUFFER_SIZE = 8192;
 
+	/**
+	 * Listener notified about every buffer of captured audio, e.g. for the
+	 * live analysis during recording.
+	 */
+	interface CaptureListener {
+		/**
+		 * Called from the capture thread after each buffer is read from the
+		 * line. It should return quickly, otherwise the line overflows.
+		 * 
+		 * @param data
+		 *            buffer with captured audio bytes, reused for the next
+		 *            read
+		 * @param length
+		 *            number of valid bytes in the buffer
+		 */
+		void audioCaptured(byte[] data, int length);
+	}
+
+	/**
+	 * Listener of captured audio, null if there is none.
+	 */
+	private volatile CaptureListener captureListener;
+
 	PlayState getPlayState() {
 		return playState;
 	}
@@ -436,6 +459,10 @@ public class Player {
 					if ((numBytesRead = targetDataLine.read(data, 0, BUFFER_SIZE)) == -1)
 						break;
 					out.write(data, 0, numBytesRead);
+
+					CaptureListener listener = captureListener;
+					if (listener != null)
+						listener.audioCaptured(data, numBytesRead);
 				}
 
 				targetDataLine.stop();
@@ -489,6 +516,16 @@ public class Player {
 		}
 	}
 
+	/**
+	 * Set listener notified about captured audio buffers.
+	 * 
+	 * @param listener
+	 *            listener of captured audio or null to remove it
+	 */
+	void setCaptureListener(CaptureListener listener) {
+		captureListener = listener;
+	}
+
 	public void setButtonListenerAutoref(ButtonListener buttonListener) {
 		this.buttonListener = buttonListener;
 	}
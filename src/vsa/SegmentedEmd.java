@@ -0,0 +1,456 @@
+package vsa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import access.mypackage.offdebug.Debug;
+
+/****************************************************************************
+ * Klasa SegmentedEmd
+ *
+ * Dekompozycja EMD długiego sygnału w oknach. Sygnał jest dzielony na
+ * zachodzące na siebie okna, każde okno jest rozkładane na funkcje IMF
+ * niezależnie, w osobnym zadaniu wspólnej puli wątków AnalysisThreadPool, a
+ * odpowiadające sobie funkcje IMF sąsiednich okien (match()) są następnie
+ * sklejane w jedną funkcję. W obszarach zakładki sąsiednie okna są łączone
+ * liniowym przenikaniem (cross-fade), co usuwa nieciągłości na granicach
+ * okien.
+ *
+ * Koszt algorytmu EMD rośnie z długością sygnału szybciej niż liniowo (liczba
+ * iteracji przesiewania zależy od długości), więc podział na okna zmniejsza
+ * czas obliczeń także na jednym procesorze, a pamięć robocza zależy tylko od
+ * długości okna. Każdy wątek puli ma własny zestaw buforów EmdWorkspace.
+ *
+ ****************************************************************************
+ */
+class SegmentedEmd {
+
+	/**
+	 * Domyślna długość okna w sekundach
+	 */
+	static final float DEFAULT_WINDOW_SECONDS = 10F;
+
+	/**
+	 * Domyślna długość zakładki sąsiednich okien w sekundach
+	 */
+	static final float DEFAULT_OVERLAP_SECONDS = 1F;
+
+	/**
+	 * Analiza, której algorytm EMD jest wykonywany w oknach
+	 */
+	private final Analysis analysis;
+
+	/**
+	 * Długość okna i zakładki w próbkach
+	 */
+	private final int window;
+	private final int overlap;
+
+	/**
+	 * Najmniejszy współczynnik korelacji funkcji IMF sąsiednich okien w
+	 * zakładce, przy którym funkcje są sklejane w jedną
+	 */
+	static final float MIN_CORRELATION = 0.5F;
+
+	/**
+	 * Długość wygaszania sygnału okna przy granicach z sąsiednimi oknami w
+	 * sekundach
+	 */
+	static final float EDGE_TAPER_SECONDS = 0.1F;
+
+	/**
+	 * Długość wygaszania w próbkach, nie więcej niż ćwierć zakładki
+	 */
+	private final int taper;
+
+	/**
+	 * Konstruktor z domyślną długością okna i zakładki.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 */
+	SegmentedEmd(Analysis analysis) {
+		this(analysis, DEFAULT_WINDOW_SECONDS, DEFAULT_OVERLAP_SECONDS);
+	}
+
+	/**
+	 * Konstruktor.
+	 *
+	 * @param analysis
+	 *            analiza, której algorytm EMD i częstotliwość próbkowania są
+	 *            wykorzystywane
+	 * @param windowSeconds
+	 *            długość okna w sekundach
+	 * @param overlapSeconds
+	 *            długość zakładki sąsiednich okien w sekundach
+	 */
+	SegmentedEmd(Analysis analysis, float windowSeconds, float overlapSeconds) {
+		float rate = analysis.getAnalysisSampleRate();
+		this.analysis = analysis;
+		this.window = Math.round(windowSeconds * rate);
+		this.overlap = Math.round(overlapSeconds * rate);
+		if (overlap < 1 || window < 2 * overlap)
+			throw new IllegalArgumentException("Invalid window (" + windowSeconds + " s) or overlap ("
+					+ overlapSeconds + " s)");
+		this.taper = Math.min(Math.round(EDGE_TAPER_SECONDS * rate), overlap / 4);
+	}
+
+	/**
+	 * Dekompozycja sygnału na funkcje IMF. Sygnał krótszy niż jedno okno jest
+	 * rozkładany w całości. Jednocześnie rozkładanych jest co najwyżej
+	 * 2 * AnalysisThreadPool.getParallelism() okien, a funkcje IMF każdego
+	 * okna są sklejane w kolejności okien zaraz po jego rozkładzie i
+	 * zwalniane, więc oprócz sklejanych funkcji pamięć zależy tylko od
+	 * długości okna. Funkcja może obejmować tylko część sygnału (poza nią
+	 * jest zerowa), dlatego funkcji może być więcej niż w pojedynczym oknie.
+	 * Częstotliwości sklejonych funkcji są wyliczane na nowo w zakresie
+	 * sygnału, który obejmują. Wynikowe funkcje są uporządkowane od
+	 * najwyższej częstotliwości, a funkcje o częstotliwości poniżej 4 Hz są
+	 * pomijane, tak jak w algorytmie EMD.
+	 *
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param imfs
+	 *            wynik dekompozycji, do którego są dodawane sklejone funkcje
+	 *            IMF
+	 * @throws AnalysisInterruptedException
+	 *             przerwanie analizy
+	 */
+	void decompose(float[] samples, ImfSet imfs) throws AnalysisInterruptedException {
+		final int length = samples.length;
+
+		// liczba okien, ostatnie okno kończy się na końcu sygnału i ma co
+		// najmniej pół kroku więcej niż zakładka
+		final int hop = window - overlap;
+		final int windows = Math.max(1, Math.round((length - overlap) / (float) hop));
+		Debug.debug("Segmented EMD: " + windows + " windows of " + window + " samples, overlap " + overlap);
+
+		// dekompozycja okien w puli wątków: po sklejeniu okna w kolejce
+		// umieszczane jest kolejne, dzięki czemu w pamięci są wyniki tylko
+		// ograniczonej liczby okien
+		ForkJoinPool pool = AnalysisThreadPool.get();
+		final int inFlight = Math.min(windows, 2 * AnalysisThreadPool.getParallelism());
+		WindowTask[] tasks = new WindowTask[windows];
+		for (int w = 0; w < inFlight; w++)
+			pool.execute(tasks[w] = windowTask(samples, w, windows));
+
+		List<Track> tracks = new ArrayList<Track>();
+		List<Track> active = new ArrayList<Track>();
+		for (int w = 0; w < windows; w++) {
+			WindowTask task = tasks[w];
+			task.join();
+			tasks[w] = null;
+
+			AnalysisInterruptedException interrupted = task.interrupted;
+			if (interrupted == null && analysis.getAnalysisState() == Analysis.AnalysisState.INTERRUPTING)
+				interrupted = new AnalysisInterruptedException();
+			if (interrupted != null) {
+				// pozostałe okna kończą się szybko po przerwaniu analizy
+				for (int v = w + 1; v < windows && tasks[v] != null; v++)
+					tasks[v].quietlyJoin();
+				throw interrupted;
+			}
+
+			if (w + inFlight < windows)
+				pool.execute(tasks[w + inFlight] = windowTask(samples, w + inFlight, windows));
+
+			active = stitch(active, tracks, task, length, w > 0, w < windows - 1);
+		}
+
+		// częstotliwości sklejonych funkcji są wyliczane na nowo, w zakresie
+		// sygnału, który obejmują
+		Zeros zeros = new Zeros();
+		for (Track track : tracks)
+			track.frequency = analysis.avgerageFrequency(track.samples, track.end - track.start, zeros);
+		Collections.sort(tracks, new Comparator<Track>() {
+			@Override
+			public int compare(Track t1, Track t2) {
+				return Float.compare(t2.frequency, t1.frequency);
+			}
+		});
+
+		// funkcje są dopełniane zerami do długości sygnału
+		float[] function = new float[length];
+		for (Track track : tracks) {
+			if (track.frequency >= 4F) {
+				Arrays.fill(function, 0F);
+				System.arraycopy(track.samples, 0, function, track.start, track.end - track.start);
+				imfs.add(function, track.frequency, track.siftCount);
+			}
+			track.samples = null;
+		}
+	}
+
+	/**
+	 * Utworzenie zadania dekompozycji okna o podanym numerze.
+	 */
+	private WindowTask windowTask(float[] samples, int w, int windows) {
+		int start = w * (window - overlap);
+		int end = (w == windows - 1) ? samples.length : start + window;
+		return new WindowTask(samples, start, end, w > 0, w < windows - 1);
+	}
+
+	/**
+	 * Dołączenie funkcji IMF okna do ścieżek. Okna nie muszą dawać tej samej
+	 * liczby funkcji (np. dodatkowa funkcja o wysokiej częstotliwości w
+	 * części okien), dlatego funkcje nie są łączone według numeru, tylko
+	 * według podobieństwa przebiegów w zakładce z poprzednim oknem (match()).
+	 * Funkcja bez odpowiednika rozpoczyna nową ścieżkę, a ścieżka bez
+	 * odpowiednika w danym oknie kończy się na poprzednim oknie.
+	 *
+	 * @param active
+	 *            ścieżki, do których dołączono poprzednie okno
+	 * @param tracks
+	 *            wszystkie ścieżki, uzupełniane o nowe ścieżki
+	 * @param task
+	 *            rozłożone okno
+	 * @param length
+	 *            długość całego sygnału
+	 * @param fadeIn
+	 *            czy okno zachodzi na poprzednie
+	 * @param fadeOut
+	 *            czy okno zachodzi na następne
+	 * @return ścieżki, do których dołączono to okno
+	 */
+	private List<Track> stitch(List<Track> active, List<Track> tracks, WindowTask task, int length, boolean fadeIn,
+			boolean fadeOut) {
+		ImfSet windowImfs = task.imfs;
+		float[] data = windowImfs.getData();
+		int windowLength = task.to - task.from;
+
+		Track[] matched = match(active, windowImfs);
+		List<Track> next = new ArrayList<Track>(windowImfs.size());
+		for (int k = 0; k < windowImfs.size(); k++) {
+			Track track = matched[k];
+			if (track == null) {
+				track = new Track(task.from);
+				tracks.add(track);
+			}
+
+			int offset = windowImfs.getOffset(k);
+			track.ensureCapacity(task.to, length);
+			float[] out = track.samples;
+			int base = task.from - track.start;
+			for (int i = 0; i < windowLength; i++)
+				out[base + i] += weight(i, windowLength, fadeIn, fadeOut) * data[offset + i];
+			track.end = task.to;
+
+			// koniec okna pokrywa się z początkiem następnego okna
+			track.tail = fadeOut ? Arrays.copyOfRange(data, offset + windowLength - overlap, offset + windowLength)
+					: null;
+			track.siftCount += windowImfs.getSiftCount(k);
+			next.add(track);
+		}
+		return next;
+	}
+
+	/**
+	 * Przyporządkowanie funkcji IMF okna do ścieżek poprzedniego okna. Miarą
+	 * podobieństwa jest współczynnik korelacji końca funkcji poprzedniego
+	 * okna i początku funkcji okna w zakładce, gdzie obie opisują ten sam
+	 * fragment sygnału. Pary są wybierane metodą programowania dynamicznego
+	 * tak, żeby suma współczynników była największa, z zachowaniem kolejności
+	 * funkcji (od najwyższej częstotliwości), a łączone są tylko funkcje o
+	 * współczynniku co najmniej MIN_CORRELATION.
+	 *
+	 * @param active
+	 *            ścieżki, do których dołączono poprzednie okno
+	 * @param windowImfs
+	 *            funkcje IMF okna
+	 * @return ścieżki przyporządkowane kolejnym funkcjom okna, null dla
+	 *         funkcji bez odpowiednika
+	 */
+	private Track[] match(List<Track> active, ImfSet windowImfs) {
+		final int m = active.size();
+		final int n = windowImfs.size();
+		float[] data = windowImfs.getData();
+
+		float[][] similarity = new float[m][n];
+		for (int i = 0; i < m; i++)
+			for (int j = 0; j < n; j++)
+				similarity[i][j] = correlation(active.get(i).tail, data, windowImfs.getOffset(j));
+
+		float[][] score = new float[m + 1][n + 1];
+		for (int i = 1; i <= m; i++) {
+			for (int j = 1; j <= n; j++) {
+				score[i][j] = Math.max(score[i - 1][j], score[i][j - 1]);
+				if (similarity[i - 1][j - 1] >= MIN_CORRELATION)
+					score[i][j] = Math.max(score[i][j], score[i - 1][j - 1] + similarity[i - 1][j - 1]);
+			}
+		}
+
+		// odtworzenie par od końca
+		Track[] matched = new Track[n];
+		for (int i = m, j = n; i > 0 && j > 0;) {
+			if (score[i][j] == score[i - 1][j])
+				i--;
+			else if (score[i][j] == score[i][j - 1])
+				j--;
+			else
+				matched[--j] = active.get(--i);
+		}
+		return matched;
+	}
+
+	/**
+	 * Współczynnik korelacji (bez odejmowania średniej) końca funkcji
+	 * poprzedniego okna i początku funkcji okna.
+	 *
+	 * @param tail
+	 *            koniec funkcji poprzedniego okna, overlap próbek
+	 * @param data
+	 *            funkcje IMF okna
+	 * @param offset
+	 *            indeks początku funkcji w data
+	 * @return współczynnik od -1 do 1, 0 dla funkcji zerowej
+	 */
+	private static float correlation(float[] tail, float[] data, int offset) {
+		double xy = 0, xx = 0, yy = 0;
+		for (int i = 0; i < tail.length; i++) {
+			double x = tail[i], y = data[offset + i];
+			xy += x * y;
+			xx += x * x;
+			yy += y * y;
+		}
+		return (xx > 0 && yy > 0) ? (float) (xy / Math.sqrt(xx * yy)) : 0F;
+	}
+
+	/**
+	 * Waga próbki okna przy sklejaniu. W zakładce na początku okna waga rośnie
+	 * liniowo od 0 do 1, a w zakładce na końcu maleje od 1 do 0, tak że suma
+	 * wag dwóch sąsiednich okien wynosi 1.
+	 *
+	 * @param i
+	 *            indeks próbki w oknie
+	 * @param windowLength
+	 *            długość okna
+	 * @param fadeIn
+	 *            czy okno zachodzi na poprzednie
+	 * @param fadeOut
+	 *            czy okno zachodzi na następne
+	 * @return waga próbki
+	 */
+	private float weight(int i, int windowLength, boolean fadeIn, boolean fadeOut) {
+		if (fadeIn && i < overlap)
+			return (i + 0.5F) / overlap;
+		if (fadeOut && i >= windowLength - overlap)
+			return (windowLength - i - 0.5F) / overlap;
+		return 1F;
+	}
+
+	/****************************************************************
+	 * Klasa Track
+	 *
+	 * Funkcja IMF sklejana z kolejnych okien. Przechowywany jest tylko
+	 * fragment sygnału od początku pierwszego do końca ostatniego
+	 * dołączonego okna.
+	 *
+	 ****************************************************************
+	 */
+	private static class Track {
+		/**
+		 * Indeks próbki sygnału, od której zaczyna się funkcja, i indeks za
+		 * ostatnią próbką
+		 */
+		final int start;
+		int end;
+		/**
+		 * Próbki funkcji od indeksu start
+		 */
+		float[] samples = new float[0];
+		/**
+		 * Koniec funkcji ostatnio dołączonego okna w zakładce z następnym
+		 * oknem, bez wagi przenikania
+		 */
+		float[] tail;
+		/**
+		 * Częstotliwość sklejonej funkcji
+		 */
+		float frequency;
+		/**
+		 * Suma liczby iteracji przesiewania
+		 */
+		int siftCount;
+
+		Track(int start) {
+			this.start = start;
+			this.end = start;
+		}
+
+		/**
+		 * Zapewnienie miejsca na próbki do indeksu sygnału to. Tablica jest
+		 * powiększana co najmniej dwukrotnie, ale nie ponad koniec sygnału.
+		 */
+		void ensureCapacity(int to, int length) {
+			if (to - start > samples.length)
+				samples = Arrays.copyOf(samples, Math.min(length - start, Math.max(to - start, 2 * samples.length)));
+		}
+	}
+
+	/****************************************************************
+	 * Klasa WindowTask
+	 *
+	 * Dekompozycja pojedynczego okna. Sygnał okna jest wygaszany liniowo
+	 * na taper próbkach przy granicach z sąsiednimi oknami: ucięty w
+	 * połowie przebieg daje na końcach okna obwiednie, których średnia
+	 * długo nie maleje, więc przesiewanie funkcji o niskich
+	 * częstotliwościach wymagało kilka razy więcej iteracji. Wygaszany
+	 * fragment leży w zakładce, w której okno ma małą wagę przenikania.
+	 *
+	 ****************************************************************
+	 */
+	@SuppressWarnings("serial")
+	private class WindowTask extends RecursiveAction {
+		private final float[] samples;
+		final int from;
+		final int to;
+
+		/**
+		 * Czy sygnał jest wygaszany na początku i na końcu okna
+		 */
+		private final boolean taperStart;
+		private final boolean taperEnd;
+
+		/**
+		 * Funkcje IMF okna, w kolejności wyznaczania
+		 */
+		final ImfSet imfs;
+
+		/**
+		 * Wyjątek przerwania analizy zgłoszony w trakcie dekompozycji
+		 */
+		AnalysisInterruptedException interrupted;
+
+		WindowTask(float[] samples, int from, int to, boolean taperStart, boolean taperEnd) {
+			this.samples = samples;
+			this.from = from;
+			this.to = to;
+			this.taperStart = taperStart;
+			this.taperEnd = taperEnd;
+			imfs = new ImfSet(to - from, Analysis.ImfRetention.ALL);
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				float[] signal = Arrays.copyOfRange(samples, from, to);
+				for (int i = 0; i < taper; i++) {
+					float gain = (i + 0.5F) / taper;
+					if (taperStart)
+						signal[i] *= gain;
+					if (taperEnd)
+						signal[signal.length - 1 - i] *= gain;
+				}
+				analysis.emd(signal, imfs, EmdWorkspace.forCurrentThread());
+			} catch (AnalysisInterruptedException e) {
+				interrupted = e;
+			}
+		}
+	}
+}
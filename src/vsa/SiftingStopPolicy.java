@@ -0,0 +1,199 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa SiftingStopPolicy
+ *
+ * Warunki zakończenia przesiewania pojedynczej funkcji IMF w algorytmie EMD.
+ * Przesiewanie kończy się, gdy spełniony jest którykolwiek z włączonych
+ * warunków:
+ *
+ * - kryterium Cauchy'ego: suma kwadratów różnic kolejnych komponentów
+ * (DspKernels.squaredDifference) nie przekracza progu,
+ *
+ * - liczba S: liczby ekstremów i miejsc zerowych komponentu różnią się co
+ * najwyżej o 1 i nie zmieniają się przez S kolejnych iteracji,
+ *
+ * - stała liczba iteracji przesiewania,
+ *
+ * - maksymalna liczba iteracji, ograniczająca czas obliczeń dla sygnałów, dla
+ * których pozostałe warunki nie są spełniane.
+ *
+ * Analiza przyjmuje tylko warunki ze stałą albo maksymalną liczbą iteracji
+ * (isBounded()).
+ *
+ * Obiekty są niezmienne, kolejne warunki dodaje się metodami with...().
+ *
+ ****************************************************************************
+ */
+class SiftingStopPolicy {
+
+	/**
+	 * Domyślny próg kryterium Cauchy'ego
+	 */
+	static final float DEFAULT_SD_THRESHOLD = 5F;
+
+	/**
+	 * Domyślna maksymalna liczba iteracji przesiewania
+	 */
+	static final int DEFAULT_MAX_SIFTS = 1000;
+
+	/**
+	 * Domyślne warunki: kryterium Cauchy'ego z progiem 5 i maksymalna liczba
+	 * iteracji
+	 */
+	static final SiftingStopPolicy DEFAULT = new SiftingStopPolicy().withCauchy(DEFAULT_SD_THRESHOLD)
+			.withMaxSifts(DEFAULT_MAX_SIFTS);
+
+	/**
+	 * Próg kryterium Cauchy'ego, wartość ujemna wyłącza kryterium
+	 */
+	private final float sdThreshold;
+
+	/**
+	 * Liczba S, 0 wyłącza kryterium
+	 */
+	private final int sNumber;
+
+	/**
+	 * Stała liczba iteracji, 0 wyłącza kryterium
+	 */
+	private final int fixedSifts;
+
+	/**
+	 * Maksymalna liczba iteracji, 0 oznacza brak ograniczenia
+	 */
+	private final int maxSifts;
+
+	/**
+	 * Konstruktor. Tworzy obiekt bez żadnego warunku, który należy uzupełnić
+	 * metodami with...().
+	 */
+	SiftingStopPolicy() {
+		this(-1F, 0, 0, 0);
+	}
+
+	private SiftingStopPolicy(float sdThreshold, int sNumber, int fixedSifts, int maxSifts) {
+		this.sdThreshold = sdThreshold;
+		this.sNumber = sNumber;
+		this.fixedSifts = fixedSifts;
+		this.maxSifts = maxSifts;
+	}
+
+	/**
+	 * Dodanie kryterium Cauchy'ego.
+	 *
+	 * @param threshold
+	 *            próg sumy kwadratów różnic
+	 * @return nowy obiekt z dodanym warunkiem
+	 */
+	SiftingStopPolicy withCauchy(float threshold) {
+		if (threshold < 0)
+			throw new IllegalArgumentException("Invalid SD threshold: " + threshold);
+		return new SiftingStopPolicy(threshold, sNumber, fixedSifts, maxSifts);
+	}
+
+	/**
+	 * Dodanie kryterium liczby S.
+	 *
+	 * @param s
+	 *            liczba kolejnych iteracji ze stałą liczbą ekstremów i
+	 *            miejsc zerowych
+	 * @return nowy obiekt z dodanym warunkiem
+	 */
+	SiftingStopPolicy withSNumber(int s) {
+		if (s < 1)
+			throw new IllegalArgumentException("Invalid S-number: " + s);
+		return new SiftingStopPolicy(sdThreshold, s, fixedSifts, maxSifts);
+	}
+
+	/**
+	 * Dodanie stałej liczby iteracji.
+	 *
+	 * @param sifts
+	 *            liczba iteracji przesiewania każdej funkcji IMF
+	 * @return nowy obiekt z dodanym warunkiem
+	 */
+	SiftingStopPolicy withFixedSifts(int sifts) {
+		if (sifts < 1)
+			throw new IllegalArgumentException("Invalid number of sifts: " + sifts);
+		return new SiftingStopPolicy(sdThreshold, sNumber, sifts, maxSifts);
+	}
+
+	/**
+	 * Dodanie maksymalnej liczby iteracji.
+	 *
+	 * @param sifts
+	 *            maksymalna liczba iteracji przesiewania każdej funkcji IMF
+	 * @return nowy obiekt z dodanym warunkiem
+	 */
+	SiftingStopPolicy withMaxSifts(int sifts) {
+		if (sifts < 1)
+			throw new IllegalArgumentException("Invalid number of sifts: " + sifts);
+		return new SiftingStopPolicy(sdThreshold, sNumber, fixedSifts, sifts);
+	}
+
+	/**
+	 * Sprawdzenie warunków po kolejnej iteracji przesiewania: kryterium
+	 * Cauchy'ego, stałej i maksymalnej liczby iteracji.
+	 *
+	 * @param sifts
+	 *            liczba wykonanych iteracji
+	 * @param squaredDifference
+	 *            suma kwadratów różnic komponentów z ostatniej iteracji
+	 * @return true, jeżeli przesiewanie należy zakończyć
+	 */
+	boolean isSatisfied(int sifts, float squaredDifference) {
+		if (sdThreshold >= 0 && squaredDifference <= sdThreshold)
+			return true;
+		if (fixedSifts > 0 && sifts >= fixedSifts)
+			return true;
+		return isLimitReached(sifts);
+	}
+
+	/**
+	 * Sprawdzenie, czy osiągnięto maksymalną liczbę iteracji.
+	 *
+	 * @param sifts
+	 *            liczba wykonanych iteracji
+	 * @return true, jeżeli osiągnięto ograniczenie
+	 */
+	boolean isLimitReached(int sifts) {
+		return maxSifts > 0 && sifts >= maxSifts;
+	}
+
+	/**
+	 * Sprawdzenie, czy liczba iteracji jest ograniczona (stała albo
+	 * maksymalna liczba iteracji). Kryterium Cauchy'ego i liczba S mogą nie
+	 * zostać nigdy spełnione, więc same nie gwarantują zakończenia pętli
+	 * przesiewania.
+	 *
+	 * @return true, jeżeli włączona jest stała albo maksymalna liczba
+	 *         iteracji
+	 */
+	boolean isBounded() {
+		return fixedSifts > 0 || maxSifts > 0;
+	}
+
+	/**
+	 * Zwraca liczbę S.
+	 *
+	 * @return liczba S albo 0, jeżeli kryterium jest wyłączone
+	 */
+	int getSNumber() {
+		return sNumber;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		if (sdThreshold >= 0)
+			text.append("SD <= ").append(sdThreshold).append(' ');
+		if (sNumber > 0)
+			text.append("S = ").append(sNumber).append(' ');
+		if (fixedSifts > 0)
+			text.append("sifts = ").append(fixedSifts).append(' ');
+		if (maxSifts > 0)
+			text.append("max sifts = ").append(maxSifts);
+		return text.toString().trim();
+	}
+}
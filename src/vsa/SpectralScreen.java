@@ -0,0 +1,357 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa SpectralScreen
+ *
+ * Szybka ocena widmowa sygnału w paśmie mikrodrżenia (4 - 16 Hz), bez
+ * algorytmu EMD. Sygnał po filtracji i decymacji jest dodatkowo decymowany
+ * (DecimationCascade), dzielony na ramki z oknem Hanna zachodzące na siebie w
+ * połowie, a moc w kolejnych częstotliwościach pasma jest wyznaczana
+ * algorytmem Goertzela i uśredniana po ramkach (metoda Welcha). Wynikiem są
+ * częstotliwość dominująca, stosunek jej mocy do średniej mocy w paśmie oraz
+ * udział pasma w energii sygnału. Częstotliwością dominującą jest maksimum
+ * lokalne widma wyróżniające się w paśmie, które leży najbliżej częstotliwości
+ * mikrodrżenia (10 Hz), doprecyzowane interpolacją paraboliczną - tak samo
+ * analiza EMD wybiera funkcję IMF najbliższą 10 Hz.
+ *
+ * Wynik jest niejednoznaczny, jeżeli w paśmie nie ma wyraźnego maksimum, inne
+ * maksimum ma porównywalną moc, częstotliwość dominująca leży poza pasmem
+ * stresu (8 - 12 Hz) albo blisko jego granic lub sygnał jest krótszy niż
+ * jedna ramka. Ocena rozstrzyga więc samodzielnie tylko nagrania z wyraźnym,
+ * pojedynczym mikrodrżeniem w środku pasma stresu, a pozostałe wymagają
+ * pełnej analizy EMD: maksimum widma poza pasmem stresu nie wyklucza, że
+ * funkcja IMF najbliższa 10 Hz leży w tym paśmie.
+ *
+ ****************************************************************************
+ */
+class SpectralScreen {
+
+	/**
+	 * Granice pasma mikrodrżenia i odstęp kolejnych częstotliwości w Hz
+	 */
+	static final float MIN_FREQUENCY = 4F;
+	static final float MAX_FREQUENCY = 16F;
+	static final float FREQUENCY_STEP = 0.25F;
+
+	/**
+	 * Długość ramki w sekundach - listek główny okna Hanna ma szerokość
+	 * 2 / FRAME_SECONDS Hz, więc obejmuje kilka kolejnych częstotliwości
+	 */
+	static final float FRAME_SECONDS = 4F;
+
+	/**
+	 * Odległość częstotliwości dominującej od granicy decyzji, poniżej której
+	 * wynik jest niejednoznaczny
+	 */
+	static final float BOUNDARY_MARGIN = 1F;
+
+	/**
+	 * Najmniejszy stosunek mocy maksimum do średniej mocy w paśmie, przy
+	 * którym częstotliwość dominująca jest uznawana za wyraźną
+	 */
+	static final float MIN_PEAK_RATIO = 4F;
+
+	/**
+	 * Stosunek mocy częstotliwości dominującej do mocy innego maksimum, poniżej
+	 * którego maksima są porównywalne i wynik jest niejednoznaczny
+	 */
+	static final float COMPARABLE_PEAK_RATIO = 4F;
+
+	/**
+	 * Współczynnik dodatkowej decymacji przed wyznaczaniem widma
+	 */
+	private static final int DECIMATION = 8;
+
+	/**
+	 * Średnia moc w kolejnych częstotliwościach pasma
+	 */
+	private final float[] power;
+
+	/**
+	 * Częstotliwość dominująca w Hz, 0 bez wyniku
+	 */
+	private final float dominantFrequency;
+
+	/**
+	 * Stosunek mocy częstotliwości dominującej do średniej mocy w paśmie
+	 */
+	private final float peakRatio;
+
+	/**
+	 * Liczba maksimów widma wyróżniających się w paśmie
+	 */
+	private final int significantPeaks;
+
+	/**
+	 * Czy inne maksimum ma moc porównywalną z częstotliwością dominującą
+	 */
+	private final boolean competingPeak;
+
+	/**
+	 * Udział pasma w energii sygnału
+	 */
+	private final float bandFraction;
+
+	/**
+	 * Liczba ramek
+	 */
+	private final int frames;
+
+	/**
+	 * Konstruktor. Wyznacza widmo sygnału w paśmie mikrodrżenia.
+	 *
+	 * @param samples
+	 *            sygnał po filtracji i decymacji
+	 * @param sampleRate
+	 *            częstotliwość próbkowania sygnału
+	 */
+	SpectralScreen(float[] samples, float sampleRate) {
+		// dodatkowa decymacja, jeżeli pasmo mieści się z zapasem poniżej
+		// częstotliwości Nyquista po decymacji
+		float rate = sampleRate;
+		float[] signal = samples;
+		if (sampleRate / DECIMATION > 2.5F * MAX_FREQUENCY) {
+			DecimationCascade cascade = new DecimationCascade(sampleRate, sampleRate / DECIMATION,
+					MAX_FREQUENCY + MIN_FREQUENCY);
+			float[] decimated = cascade.process(samples);
+			if (decimated != null) {
+				signal = decimated;
+				rate = cascade.getOutputRate();
+			}
+		}
+
+		final int bins = Math.round((MAX_FREQUENCY - MIN_FREQUENCY) / FREQUENCY_STEP) + 1;
+		power = new float[bins];
+		final int frame = Math.round(FRAME_SECONDS * rate);
+		final int hop = frame / 2;
+		frames = (signal.length < frame) ? 0 : (signal.length - frame) / hop + 1;
+		if (frames == 0) {
+			dominantFrequency = 0;
+			peakRatio = 0;
+			bandFraction = 0;
+			significantPeaks = 0;
+			competingPeak = false;
+			return;
+		}
+
+		// okno Hanna i współczynniki Goertzela 2 cos(2 pi f / fs)
+		float[] window = new float[frame];
+		for (int i = 0; i < frame; i++)
+			window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (frame - 1)));
+		double[] coeff = new double[bins];
+		for (int k = 0; k < bins; k++)
+			coeff[k] = 2 * Math.cos(2 * Math.PI * (MIN_FREQUENCY + k * FREQUENCY_STEP) / rate);
+
+		double windowEnergy = 0;
+		for (int i = 0; i < frame; i++)
+			windowEnergy += window[i] * window[i];
+
+		float[] windowed = new float[frame];
+		double[] sum = new double[bins];
+		for (int f = 0; f < frames; f++) {
+			int start = f * hop;
+			double mean = 0;
+			for (int i = 0; i < frame; i++)
+				mean += signal[start + i];
+			mean /= frame;
+			for (int i = 0; i < frame; i++)
+				windowed[i] = (float) ((signal[start + i] - mean) * window[i]);
+			goertzel(windowed, frame, coeff, sum);
+		}
+
+		// średnia moc i moc w całym paśmie
+		double band = 0;
+		for (int k = 0; k < bins; k++) {
+			power[k] = (float) (sum[k] / frames);
+			band += sum[k];
+		}
+		float meanPower = (float) (band / (frames * bins));
+
+		// moc pasma na próbkę z twierdzenia Parsevala - moc w częstotliwości f
+		// odpowiada pasmu fs / N, składowa o częstotliwości ujemnej daje
+		// drugie tyle - względem mocy sygnału przed dodatkową decymacją
+		double bandPower = 2 * band * FREQUENCY_STEP / rate / (frames * windowEnergy);
+		double signalPower = power(samples);
+		bandFraction = (signalPower > 0) ? (float) Math.min(1, bandPower / signalPower) : 0;
+
+		// maksima lokalne wyróżniające się w paśmie - wybierane jest maksimum
+		// najbliższe częstotliwości mikrodrżenia, tak jak funkcja IMF w
+		// algorytmie EMD
+		int selected = -1, peaks = 0;
+		float frequency = 0;
+		for (int k = 0; k < bins; k++) {
+			if (meanPower <= 0 || !isPeak(k) || power[k] < MIN_PEAK_RATIO * meanPower)
+				continue;
+			peaks++;
+			float f = peakFrequency(k);
+			if (selected < 0
+					|| Math.abs(f - Analysis.MICROTREMOR_FREQUENCY) < Math.abs(frequency
+							- Analysis.MICROTREMOR_FREQUENCY)) {
+				selected = k;
+				frequency = f;
+			}
+		}
+		significantPeaks = peaks;
+		dominantFrequency = frequency;
+		peakRatio = (selected >= 0) ? power[selected] / meanPower : 0;
+
+		// inne maksimum o porównywalnej mocy - algorytm EMD może je połączyć
+		// z wybranym w jedną funkcję IMF albo wybrać zamiast niego
+		boolean competing = false;
+		for (int k = 0; k < bins && selected >= 0; k++)
+			if (k != selected && isPeak(k) && COMPARABLE_PEAK_RATIO * power[k] >= power[selected])
+				competing = true;
+		competingPeak = competing;
+	}
+
+	/**
+	 * Sprawdzenie, czy w podanej częstotliwości widmo ma maksimum lokalne.
+	 * Skrajne częstotliwości pasma są maksimami, jeżeli moc maleje w stronę
+	 * środka pasma.
+	 */
+	private boolean isPeak(int k) {
+		return (k == 0 || power[k] > power[k - 1]) && (k == power.length - 1 || power[k] >= power[k + 1]);
+	}
+
+	/**
+	 * Częstotliwość maksimum doprecyzowana interpolacją paraboliczną
+	 * logarytmu mocy.
+	 */
+	private float peakFrequency(int k) {
+		float offset = 0;
+		if (k > 0 && k < power.length - 1 && power[k - 1] > 0 && power[k + 1] > 0) {
+			double left = Math.log(power[k - 1]);
+			double middle = Math.log(power[k]);
+			double right = Math.log(power[k + 1]);
+			double denominator = left - 2 * middle + right;
+			if (denominator < 0)
+				offset = (float) (0.5 * (left - right) / denominator);
+		}
+		return MIN_FREQUENCY + (k + offset) * FREQUENCY_STEP;
+	}
+
+	/**
+	 * Średnia moc sygnału po usunięciu składowej stałej.
+	 */
+	private static double power(float[] samples) {
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < samples.length; i++) {
+			sum += samples[i];
+			sumOfSquares += samples[i] * samples[i];
+		}
+		double mean = sum / samples.length;
+		return sumOfSquares / samples.length - mean * mean;
+	}
+
+	/**
+	 * Kwadraty modułu transformaty Fouriera ramki w kolejnych
+	 * częstotliwościach, algorytm Goertzela. Częstotliwości są liczone
+	 * parami w jednej pętli - rekurencje obu są niezależne, więc procesor
+	 * wykonuje je równolegle zamiast czekać na wynik poprzedniego kroku.
+	 *
+	 * @param samples
+	 *            ramka sygnału
+	 * @param length
+	 *            długość ramki
+	 * @param coeff
+	 *            2 cos(2 pi f / fs) dla kolejnych częstotliwości
+	 * @param sum
+	 *            sumy mocy, do których są dodawane wyniki
+	 */
+	private static void goertzel(float[] samples, int length, double[] coeff, double[] sum) {
+		int k = 0;
+		for (; k + 1 < coeff.length; k += 2) {
+			final double c0 = coeff[k], c1 = coeff[k + 1];
+			double a1 = 0, a2 = 0, b1 = 0, b2 = 0;
+			for (int i = 0; i < length; i++) {
+				double x = samples[i];
+				double a0 = x + c0 * a1 - a2;
+				double b0 = x + c1 * b1 - b2;
+				a2 = a1;
+				a1 = a0;
+				b2 = b1;
+				b1 = b0;
+			}
+			sum[k] += a1 * a1 + a2 * a2 - c0 * a1 * a2;
+			sum[k + 1] += b1 * b1 + b2 * b2 - c1 * b1 * b2;
+		}
+		if (k < coeff.length) {
+			final double c0 = coeff[k];
+			double a1 = 0, a2 = 0;
+			for (int i = 0; i < length; i++) {
+				double a0 = samples[i] + c0 * a1 - a2;
+				a2 = a1;
+				a1 = a0;
+			}
+			sum[k] += a1 * a1 + a2 * a2 - c0 * a1 * a2;
+		}
+	}
+
+	/**
+	 * Sprawdzenie, czy wynik wymaga pełnej analizy EMD.
+	 *
+	 * @return true, jeżeli w paśmie nie ma wyraźnego maksimum, inne maksimum
+	 *         ma porównywalną moc albo częstotliwość dominująca nie leży w
+	 *         paśmie stresu z zapasem BOUNDARY_MARGIN
+	 */
+	boolean isAmbiguous() {
+		return frames == 0 || significantPeaks == 0 || competingPeak
+				|| dominantFrequency < Analysis.STRESS_LOWER_FREQUENCY + BOUNDARY_MARGIN
+				|| dominantFrequency > Analysis.STRESS_UPPER_FREQUENCY - BOUNDARY_MARGIN;
+	}
+
+	/**
+	 * Zwraca częstotliwość dominującą w paśmie mikrodrżenia - wyraźne
+	 * maksimum widma najbliższe częstotliwości mikrodrżenia.
+	 *
+	 * @return częstotliwość w Hz albo 0, jeżeli sygnał jest krótszy niż
+	 *         ramka albo żadne maksimum nie wyróżnia się w paśmie
+	 */
+	float getDominantFrequency() {
+		return dominantFrequency;
+	}
+
+	/**
+	 * Zwraca stosunek mocy częstotliwości dominującej do średniej mocy w
+	 * paśmie.
+	 */
+	float getPeakRatio() {
+		return peakRatio;
+	}
+
+	/**
+	 * Zwraca liczbę maksimów widma wyróżniających się w paśmie.
+	 */
+	int getSignificantPeaks() {
+		return significantPeaks;
+	}
+
+	/**
+	 * Zwraca udział pasma mikrodrżenia w energii sygnału (od 0 do 1).
+	 */
+	float getBandFraction() {
+		return bandFraction;
+	}
+
+	/**
+	 * Zwraca średnią moc w kolejnych częstotliwościach pasma, od
+	 * MIN_FREQUENCY co FREQUENCY_STEP. Tablica nie jest kopiowana.
+	 */
+	float[] getPower() {
+		return power;
+	}
+
+	/**
+	 * Zwraca liczbę ramek, z których uśredniono widmo.
+	 */
+	int getFrames() {
+		return frames;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%.2f Hz, peak ratio %.1f, %d peaks%s, band %.1f%%, %d frames%s", dominantFrequency,
+				peakRatio, significantPeaks, competingPeak ? " (comparable)" : "", 100 * bandFraction, frames,
+				isAmbiguous() ? ", ambiguous" : "");
+	}
+}
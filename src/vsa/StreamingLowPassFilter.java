@@ -0,0 +1,181 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa StreamingLowPassFilter
+ *
+ * Filtr dolnoprzepustowy LowPassFilter w wersji strumieniowej. Sygnał może
+ * być podawany fragmentami dowolnej długości (np. kolejnymi buforami z
+ * nagrywania), a przefiltrowane próbki są zwracane na bieżąco - po jednej na
+ * każdą próbkę wejściową. Linia opóźniająca jest przechowywana w buforze
+ * cyklicznym o podwójnej długości, w którym każda próbka jest zapisywana
+ * dwukrotnie, dzięki czemu ostatnie próbki zawsze zajmują ciągły obszar
+ * pamięci.
+ *
+ * Połączone wyniki metod process() oraz flush() są identyczne bit po bicie z
+ * wynikiem LowPassFilter.filetringDirect() dla całego sygnału (przy tej samej
+ * wersji pętli DspKernels). Analiza pliku filtruje metodą
+ * LowPassFilter.filetringDecimated() (polifazowo albo z użyciem FFT), więc
+ * wyniki obu filtrów różnią się błędami zaokrągleń - najwyżej o 1e-6
+ * amplitudy sygnału (w pomiarach dla sygnałów do 2 minut: 5.3e-7). W trybie
+ * Analysis.FilterMode.CASCADE analiza pliku używa innego filtru
+ * (DecimationCascade) i ta dokładność nie obowiązuje.
+ *
+ * Filtr może też od razu zmniejszać częstotliwość próbkowania: przy
+ * współczynniku decymacji M wyliczana jest tylko co M-ta próbka wyjściowa
+ * (o indeksach 0, M, 2M, ... liczonych od początku strumienia), tak jak w
+ * metodzie LowPassFilter.decimate().
+ *
+ ****************************************************************************
+ */
+public class StreamingLowPassFilter {
+
+	/**
+	 * Współczynniki filtru
+	 */
+	private final double[] coeff;
+
+	/**
+	 * Linia opóźniająca: każda próbka jest zapisana pod indeksem position
+	 * oraz position + coeff.length
+	 */
+	private final float[] delayLine;
+
+	/**
+	 * Indeks w linii opóźniającej, pod którym zostanie zapisana następna
+	 * próbka
+	 */
+	private int position;
+
+	/**
+	 * Liczba próbek podanych od początku strumienia
+	 */
+	private long samplesCount;
+
+	/**
+	 * Współczynnik decymacji
+	 */
+	private final int factor;
+
+	/**
+	 * Konstruktor filtru bez decymacji
+	 */
+	public StreamingLowPassFilter() {
+		this(1);
+	}
+
+	/**
+	 * Konstruktor filtru z decymacją.
+	 *
+	 * @param factor
+	 *            współczynnik decymacji
+	 */
+	public StreamingLowPassFilter(int factor) {
+		if (factor < 1)
+			throw new IllegalArgumentException("Invalid decimation factor: " + factor);
+		this.factor = factor;
+		coeff = LowPassFilter.getCoefficients();
+		delayLine = new float[2 * coeff.length];
+		reset();
+	}
+
+	/**
+	 * Przefiltrowanie kolejnego fragmentu sygnału.
+	 *
+	 * @param chunk
+	 *            kolejne próbki sygnału
+	 * @return przefiltrowane próbki, bez decymacji tyle samo co próbek
+	 *         wejściowych
+	 */
+	public float[] process(float[] chunk) {
+		return process(chunk, 0, chunk.length);
+	}
+
+	/**
+	 * Przefiltrowanie kolejnego fragmentu sygnału.
+	 *
+	 * @param chunk
+	 *            tablica z kolejnymi próbkami sygnału
+	 * @param offset
+	 *            indeks pierwszej próbki
+	 * @param length
+	 *            liczba próbek
+	 * @return przefiltrowane próbki, bez decymacji tyle samo co próbek
+	 *         wejściowych
+	 */
+	public float[] process(float[] chunk, int offset, int length) {
+		final int taps = coeff.length;
+		float[] filtered = new float[outputsBefore(samplesCount + length) - outputsBefore(samplesCount)];
+
+		for (int n = 0, k = 0; n < length; n++) {
+			// zapisanie próbki w obu połówkach bufora
+			delayLine[position] = chunk[offset + n];
+			delayLine[position + taps] = chunk[offset + n];
+			samplesCount++;
+
+			// najnowsza próbka ma indeks newest, starsze leżą przed nią
+			int newest = position + taps;
+			int history = (int) Math.min(samplesCount, taps);
+
+			// próbka wyjściowa o indeksie samplesCount - 1
+			if ((samplesCount - 1) % factor == 0)
+				filtered[k++] = DspKernels.convolve(coeff, 0, history, delayLine, newest);
+
+			position = (position + 1 == taps) ? 0 : position + 1;
+		}
+
+		return filtered;
+	}
+
+	/**
+	 * Zakończenie strumienia. Zwraca próbki wyjściowe pozostające po
+	 * ostatniej próbce wejściowej (wygaszanie filtru), tak jak w metodzie
+	 * LowPassFilter.filetringDirect(). Po wywołaniu filtr jest przygotowany
+	 * do nowego strumienia.
+	 *
+	 * @return pozostałe przefiltrowane próbki
+	 */
+	public float[] flush() {
+		final int taps = coeff.length;
+		float[] filtered = new float[outputsBefore(samplesCount + taps) - outputsBefore(samplesCount)];
+
+		// indeks ostatniej podanej próbki w górnej połówce bufora
+		int newest = ((position == 0) ? taps - 1 : position - 1) + taps;
+		int history = (int) Math.min(samplesCount, taps);
+
+		// próbka wyjściowa N - 1 + d jest splotem współczynników od d z
+		// próbkami, zaczynając od najnowszej
+		for (int d = 1, k = 0; d <= taps; d++)
+			if ((samplesCount - 1 + d) % factor == 0)
+				filtered[k++] = DspKernels.convolve(coeff, d, Math.min(taps, d + history), delayLine, newest);
+
+		reset();
+		return filtered;
+	}
+
+	/**
+	 * Zwraca współczynnik decymacji.
+	 *
+	 * @return współczynnik decymacji
+	 */
+	public int getDecimationFactor() {
+		return factor;
+	}
+
+	/**
+	 * Wyczyszczenie linii opóźniającej i rozpoczęcie nowego strumienia.
+	 */
+	public void reset() {
+		for (int i = 0; i < delayLine.length; i++)
+			delayLine[i] = 0;
+		position = 0;
+		samplesCount = 0;
+	}
+
+	/**
+	 * Liczba próbek wyjściowych po decymacji o indeksach mniejszych od
+	 * podanego.
+	 */
+	private int outputsBefore(long index) {
+		return (int) ((index + factor - 1) / factor);
+	}
+}
@@ -0,0 +1,158 @@
+package vsa;
+
+/****************************************************************************
+ * Klasa StressTimeline
+ *
+ * Wynik analizy stresu w czasie (Analysis.analyseTimeline()): dla kolejnych
+ * okien początek okna, częstotliwość funkcji IMF najbliższej mikrodrżeniu i
+ * decyzja. Wartości są przechowywane w osobnych tablicach (jedna tablica na
+ * pole, indeks okna wspólny), a nie w obiekcie dla każdego okna.
+ *
+ ****************************************************************************
+ */
+class StressTimeline {
+
+	/**
+	 * Domyślna długość okna w sekundach
+	 */
+	static final float DEFAULT_WINDOW_SECONDS = 2F;
+
+	/**
+	 * Domyślna część okna wspólna z następnym oknem
+	 */
+	static final float DEFAULT_OVERLAP = 0.5F;
+
+	/**
+	 * Długość bloków dekompozycji i ich zakładki w sekundach (SegmentedEmd)
+	 * - przesiewanie kilkusekundowych bloków wymaga mniej iteracji niż
+	 * przesiewanie całego nagrania
+	 */
+	static final float BLOCK_SECONDS = 4F;
+	static final float BLOCK_OVERLAP_SECONDS = 0.5F;
+
+	/**
+	 * Długość okna i odstęp początków kolejnych okien w sekundach
+	 */
+	private final float windowSeconds;
+	private final float hopSeconds;
+
+	/**
+	 * Początki okien w sekundach od początku nagrania
+	 */
+	private final float[] starts;
+
+	/**
+	 * Częstotliwości mikrodrżenia w oknach, 0 jeżeli w oknie nie dało się
+	 * wyznaczyć częstotliwości żadnej funkcji IMF
+	 */
+	private final float[] frequencies;
+
+	/**
+	 * Decyzje w oknach
+	 */
+	private final boolean[] decisions;
+
+	/**
+	 * Czy dekompozycja została przerwana po przekroczeniu limitu czasu
+	 */
+	private final boolean partial;
+
+	/**
+	 * Konstruktor. Tablice nie są kopiowane.
+	 *
+	 * @param windowSeconds
+	 *            długość okna w sekundach
+	 * @param hopSeconds
+	 *            odstęp początków kolejnych okien w sekundach
+	 * @param starts
+	 *            początki okien w sekundach
+	 * @param frequencies
+	 *            częstotliwości mikrodrżenia w oknach
+	 * @param decisions
+	 *            decyzje w oknach
+	 * @param partial
+	 *            czy dekompozycja została przerwana po przekroczeniu limitu
+	 *            czasu
+	 */
+	StressTimeline(float windowSeconds, float hopSeconds, float[] starts, float[] frequencies, boolean[] decisions,
+			boolean partial) {
+		if (starts.length != frequencies.length || starts.length != decisions.length)
+			throw new IllegalArgumentException("Inconsistent timeline lengths: " + starts.length + ", "
+					+ frequencies.length + ", " + decisions.length);
+		this.windowSeconds = windowSeconds;
+		this.hopSeconds = hopSeconds;
+		this.starts = starts;
+		this.frequencies = frequencies;
+		this.decisions = decisions;
+		this.partial = partial;
+	}
+
+	/**
+	 * Zwraca liczbę okien.
+	 */
+	int size() {
+		return starts.length;
+	}
+
+	/**
+	 * Zwraca długość okna w sekundach.
+	 */
+	float getWindowSeconds() {
+		return windowSeconds;
+	}
+
+	/**
+	 * Zwraca odstęp początków kolejnych okien w sekundach.
+	 */
+	float getHopSeconds() {
+		return hopSeconds;
+	}
+
+	/**
+	 * Zwraca początek okna o podanym numerze w sekundach.
+	 */
+	float getStart(int w) {
+		return starts[w];
+	}
+
+	/**
+	 * Zwraca częstotliwość mikrodrżenia w oknie o podanym numerze.
+	 *
+	 * @return częstotliwość w Hz albo 0, jeżeli nie została wyznaczona
+	 */
+	float getFrequency(int w) {
+		return frequencies[w];
+	}
+
+	/**
+	 * Zwraca decyzję w oknie o podanym numerze.
+	 *
+	 * @return true, jeżeli w oknie stwierdzono stres
+	 */
+	boolean getDecision(int w) {
+		return decisions[w];
+	}
+
+	/**
+	 * Zwraca udział okien, w których stwierdzono stres.
+	 *
+	 * @return udział od 0 do 1, 0 dla pustego wyniku
+	 */
+	float getStressFraction() {
+		if (decisions.length == 0)
+			return 0;
+		int count = 0;
+		for (boolean decision : decisions)
+			if (decision)
+				count++;
+		return count / (float) decisions.length;
+	}
+
+	/**
+	 * Zwraca informację, czy wynik pochodzi z dekompozycji przerwanej po
+	 * przekroczeniu limitu czasu.
+	 */
+	boolean isPartial() {
+		return partial;
+	}
+}
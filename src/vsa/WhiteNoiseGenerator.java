@@ -0,0 +1,66 @@
+package vsa;
+
+import java.util.Random;
+
+/**
+ * A simple white noise generator.
+ *
+ * <p>
+ * Generates Gaussian white noise with zero mean and a given standard
+ * deviation, using {@link java.util.Random}. Unlike {@link BrownNoiseGenerator}
+ * the spectrum is flat, so the noise covers all frequency bands equally.
+ *
+ * <p>
+ * Reference: <a href="https://en.wikipedia.org/wiki/White_noise">Wikipedia</a>
+ **/
+public class WhiteNoiseGenerator implements NoiseGenerator {
+
+	private double standardDeviation;
+	private Random random;
+
+	/**
+	 * Creates a white noise generator with unit standard deviation.
+	 */
+	public WhiteNoiseGenerator() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a white noise generator.
+	 *
+	 * @param standardDeviation
+	 *            Standard deviation of the output values.
+	 */
+	public WhiteNoiseGenerator(double standardDeviation) {
+		this(standardDeviation, new Random());
+	}
+
+	/**
+	 * Creates a white noise generator with a reproducible output sequence.
+	 *
+	 * @param standardDeviation
+	 *            Standard deviation of the output values.
+	 * @param seed
+	 *            Seed of the random number generator.
+	 */
+	public WhiteNoiseGenerator(double standardDeviation, long seed) {
+		this(standardDeviation, new Random(seed));
+	}
+
+	private WhiteNoiseGenerator(double standardDeviation, Random random) {
+		if (standardDeviation <= 0) {
+			throw new IllegalArgumentException("Invalid standard deviation.");
+		}
+		this.standardDeviation = standardDeviation;
+		this.random = random;
+	}
+
+	/**
+	 * Returns the next output value of the noise generator.
+	 */
+	@Override
+	public double getNext() {
+		return random.nextGaussian() * standardDeviation;
+	}
+
+} // end class WhiteNoiseGenerator
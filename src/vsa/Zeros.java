@@ -0,0 +1,27 @@
+package vsa;
+
+/*************************************************************************
+ * Klasa Zeros
+ * 
+ * Klasa zawieraj�ca liczb� oraz po�o�enie miejsc zerowych funkcji
+ * 
+ *************************************************************************
+ */
+class Zeros {
+	/**
+	 * Liczba miejsc zerowych
+	 */
+	int nrOfZeros;
+	/**
+	 * Po�o�enie miejsc zerowych
+	 */
+	IntList zeroPoints;
+
+	/**
+	 * Konstruktor
+	 */
+	public Zeros() {
+		nrOfZeros = 0;
+		zeroPoints = new IntList();
+	}
+}